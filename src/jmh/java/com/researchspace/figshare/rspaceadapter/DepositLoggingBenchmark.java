@@ -0,0 +1,108 @@
+package com.researchspace.figshare.rspaceadapter;
+
+import com.researchspace.figshare.model.ArticlePost;
+import com.researchspace.figshare.model.Author;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.slf4j.Logger;
+import org.slf4j.helpers.MessageFormatter;
+import org.slf4j.helpers.NOPLogger;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Logging done by a single deposit: the per-author and full-article logging of earlier versions, against
+ * one {@link DepositEvent} per phase. Run with <code>-prof gc</code> to compare allocation.
+ * <p>
+ * Each also includes the deposit's article key. Earlier versions built it with <code>toString()</code> on every
+ * deposit; now an {@link ArticleKey} is only built if a journal or index is set, which {@code keyed} selects.
+ * <p>
+ * So that results don't depend on the logging backend, a disabled level is a no-op logger, and an enabled
+ * level is the message formatting that any backend does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DepositLoggingBenchmark {
+
+    private static final String[] PHASES = {DepositPhase.SCAN, DepositPhase.CREATE, DepositPhase.LINK,
+            DepositPhase.UPLOAD, DepositPhase.PUBLISH};
+
+    @Param({"10", "500"})
+    int authorCount;
+
+    @Param({"false", "true"})
+    boolean enabled;
+
+    @Param({"false", "true"})
+    boolean keyed;
+
+    Logger disabled = NOPLogger.NOP_LOGGER;
+    File toDeposit = new File("export.zip");
+    List<Author> authors = new ArrayList<>();
+    ArticlePost toPost;
+
+    @Setup
+    public void setUp() {
+        for (int i = 0; i < authorCount; i++) {
+            authors.add(new Author("author" + i + "@example.org", null));
+        }
+        toPost = ArticlePost.builder().title("A notebook export").description("Benchmark deposit")
+                .authors(authors).tags(List.of("RSpace")).build();
+    }
+
+    @Benchmark
+    public void legacyLogging(Blackhole blackhole) {
+        blackhole.consume(toPost.toString());
+        log(blackhole, "Depositing file {} of size {} ", toDeposit.getAbsolutePath(), toDeposit.length());
+        for (Author author : authors) {
+            log(blackhole, "Submitting author details: {}", author, null);
+        }
+        log(blackhole, "Article to post: {}", toPost, null);
+    }
+
+    @Benchmark
+    public void depositEvents(Blackhole blackhole) {
+        if (keyed) {
+            blackhole.consume(ArticleKey.of(toPost));
+        }
+        if (enabled) {
+            log(blackhole, "Depositing file {} of size {}", toDeposit.getAbsolutePath(), toDeposit.length());
+            for (String phase : PHASES) {
+                log(blackhole, "{}", new DepositEvent(toDeposit.getName(), phase, true, 1_000_000, 10, 1 << 20), null);
+            }
+        } else {
+            if (disabled.isInfoEnabled()) {
+                disabled.info("Depositing file {} of size {}", toDeposit.getAbsolutePath(), toDeposit.length());
+            }
+            blackhole.consume(DepositEventLog.isDetailSampled(disabled));
+            for (String phase : PHASES) {
+                DepositEventLog.phaseEnded(disabled, toDeposit.getName(), phase, true, 1_000_000, 10, 1 << 20);
+            }
+        }
+    }
+
+    private void log(Blackhole blackhole, String format, Object arg1, Object arg2) {
+        if (enabled) {
+            blackhole.consume(MessageFormatter.format(format, arg1, arg2).getMessage());
+        } else {
+            disabled.info(format, arg1, arg2);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.researchspace.figshare.rspaceadapter;
+
+import com.sun.net.httpserver.HttpServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of a small API call against a local stub server, through the shared pooled transport
+ * and through a new transport per call, as when every template had its own connections.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HttpTransportBenchmark {
+
+    HttpServer server;
+    String url;
+    FigshareHttpTransport pooled;
+    RestTemplate pooledTemplate;
+
+    @Setup
+    public void setUp() throws IOException {
+        // otherwise Nagle's algorithm delays the stub server's responses on kept-alive connections by ~40 ms
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        byte[] body = "{\"id\":1234}".getBytes(StandardCharsets.UTF_8);
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/account", exchange -> {
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        url = "http://localhost:" + server.getAddress().getPort() + "/account";
+        pooled = new FigshareHttpTransport(FigshareHttpTransport.Settings.builder().build());
+        pooledTemplate = new RestTemplate(pooled.getRequestFactory());
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        pooled.close();
+        server.stop(0);
+    }
+
+    @Benchmark
+    public String pooledTransport() {
+        return pooledTemplate.getForObject(url, String.class);
+    }
+
+    @Benchmark
+    public String transportPerCall() throws IOException {
+        try (FigshareHttpTransport transport = new FigshareHttpTransport(FigshareHttpTransport.Settings.builder().build())) {
+            return new RestTemplate(transport.getRequestFactory()).getForObject(url, String.class);
+        }
+    }
+}
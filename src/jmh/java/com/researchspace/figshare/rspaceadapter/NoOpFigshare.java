@@ -0,0 +1,77 @@
+package com.researchspace.figshare.rspaceadapter;
+
+import com.researchspace.figshare.api.Figshare;
+import com.researchspace.figshare.model.FigshareCategory;
+import com.researchspace.figshare.model.FigshareLicense;
+import com.researchspace.figshare.model.Location;
+
+import java.lang.reflect.Proxy;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * In-memory {@link Figshare} that does no I/O, so benchmarks measure only the adapter's own work.
+ */
+final class NoOpFigshare {
+
+    static final String ARTICLE_ID = "1234";
+
+    private NoOpFigshare() {
+    }
+
+    static Figshare create(List<FigshareCategory> categories, List<FigshareLicense> licenses) {
+        Location article = article();
+        return (Figshare) Proxy.newProxyInstance(Figshare.class.getClassLoader(), new Class<?>[]{Figshare.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "createArticle":
+                            return article;
+                        case "getCategories":
+                            return categories;
+                        case "getLicenses":
+                            return licenses;
+                        case "test":
+                            return true;
+                        default:
+                            return method.getReturnType() == boolean.class ? false : null;
+                    }
+                });
+    }
+
+    static Location article() {
+        try {
+            return new Location(new URL("https://api.figshare.com/v2/account/articles/" + ARTICLE_ID),
+                    Collections.emptyList(), ARTICLE_ID);
+        } catch (MalformedURLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * A realistic category set: a few hundred top-level categories, each with several children.
+     */
+    static List<FigshareCategory> categories(int count) {
+        List<FigshareCategory> categories = new ArrayList<>(count);
+        for (long i = 0; i < count; i++) {
+            long parent = i < count / 8 ? 0 : i % (count / 8);
+            categories.add(new FigshareCategory(i + 1, parent, "Category " + Long.toString(i * 7919 % count, 36) + " " + i));
+        }
+        return categories;
+    }
+
+    static List<FigshareLicense> licenses(int count) {
+        List<FigshareLicense> licenses = new ArrayList<>(count);
+        try {
+            for (int i = 0; i < count; i++) {
+                licenses.add(new FigshareLicense(new URL("https://licenses.example.org/license-" + i + "/"),
+                        "License " + i, i + 1, i == 0));
+            }
+        } catch (MalformedURLException e) {
+            throw new IllegalStateException(e);
+        }
+        return licenses;
+    }
+}
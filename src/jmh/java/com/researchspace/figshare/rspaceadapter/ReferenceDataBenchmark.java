@@ -0,0 +1,90 @@
+package com.researchspace.figshare.rspaceadapter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.researchspace.figshare.model.FigshareCategory;
+import com.researchspace.repository.spi.LicenseConfigInfo;
+import com.researchspace.repository.spi.Subject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Subject and license configuration lookups, parsing of static category and license JSON,
+ * loading of a reference data snapshot, and category prefix search.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReferenceDataBenchmark {
+
+    @Param({"200", "5000"})
+    int categoryCount;
+
+    FigshareRSpaceRepository repository;
+    String categoriesJson;
+    String licensesJson;
+    Path snapshotDir;
+    ReferenceDataSnapshot snapshot;
+
+    @Setup
+    public void setUp() throws Exception {
+        ObjectMapper mapper = new ObjectMapper();
+        categoriesJson = mapper.writeValueAsString(NoOpFigshare.categories(categoryCount));
+        licensesJson = mapper.writeValueAsString(NoOpFigshare.licenses(20));
+        repository = new FigshareRSpaceRepository();
+        repository.setStaticFigshareConfig(licensesJson, categoriesJson);
+        snapshotDir = Files.createTempDirectory("reference-data-benchmark");
+        snapshot = new ReferenceDataSnapshot(snapshotDir.resolve("snapshot.json"));
+        snapshot.save(NoOpFigshare.categories(categoryCount), NoOpFigshare.licenses(20));
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        Files.deleteIfExists(snapshot.getFile());
+        Files.deleteIfExists(snapshotDir);
+    }
+
+    @Benchmark
+    public List<Subject> getSubjects() {
+        return repository.getSubjects();
+    }
+
+    @Benchmark
+    public LicenseConfigInfo getLicenseConfigInfo() {
+        return repository.getLicenseConfigInfo();
+    }
+
+    @Benchmark
+    public FigshareRSpaceRepository setStaticFigshareConfig() throws Exception {
+        repository.setStaticFigshareConfig(licensesJson, categoriesJson);
+        return repository;
+    }
+
+    @Benchmark
+    public Optional<ReferenceDataSnapshot.Contents> loadSnapshot() {
+        return snapshot.load();
+    }
+
+    @Benchmark
+    public Page<FigshareCategory> searchCategories() {
+        return repository.searchCategories("category 1", 0, 20);
+    }
+}
@@ -0,0 +1,88 @@
+package com.researchspace.figshare.rspaceadapter;
+
+import com.researchspace.figshare.model.ArticlePost;
+import com.researchspace.figshare.model.FigshareCategory;
+import com.researchspace.repository.spi.IDepositor;
+import com.researchspace.repository.spi.RepositoryOperationResult;
+import com.researchspace.repository.spi.SubmissionMetadata;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.net.URL;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Article metadata assembly in {@code submitDeposit}: author mapping, subject and license lookup.
+ * Posting the article is stubbed out.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SubmitDepositBenchmark {
+
+    static class MetadataOnlyRepository extends FigshareRSpaceRepository {
+        Blackhole blackhole;
+
+        @Override
+        RepositoryOperationResult doPost(File toDeposit, ArticlePost toPost, SubmissionMetadata metadata) {
+            blackhole.consume(toPost);
+            return null;
+        }
+    }
+
+    @Param({"5000"})
+    int categoryCount;
+
+    @Param({"1", "50"})
+    int authorCount;
+
+    MetadataOnlyRepository repository;
+    SubmissionMetadata metadata;
+    File toDeposit = new File("export.zip");
+
+    @Setup
+    public void setUp() throws Exception {
+        repository = new MetadataOnlyRepository();
+        repository.setFigshare(NoOpFigshare.create(NoOpFigshare.categories(categoryCount), NoOpFigshare.licenses(20)));
+        repository.setReferenceData(new FigshareReferenceData(Duration.ofHours(1)));
+
+        List<IDepositor> authors = new ArrayList<>();
+        for (int i = 0; i < authorCount; i++) {
+            authors.add(new Depositor("author" + i + "@example.org", "author" + i, Collections.emptyList()));
+        }
+        metadata = new SubmissionMetadata();
+        metadata.setAuthors(authors);
+        metadata.setContacts(authors);
+        metadata.setTitle("A notebook export");
+        metadata.setDescription("Benchmark deposit");
+        List<FigshareCategory> categories = repository.getFigshareCategories();
+        metadata.setSubjects(List.of(categories.get(categories.size() / 2).getTitle(),
+                categories.get(categories.size() - 1).getTitle()));
+        metadata.setLicense(Optional.of(new URL("https://licenses.example.org/license-10")));
+    }
+
+    @Benchmark
+    public void submitDepositMetadataAssembly(Blackhole blackhole) {
+        repository.blackhole = blackhole;
+        repository.submitDeposit(null, toDeposit, metadata, null);
+    }
+}
@@ -0,0 +1,86 @@
+package com.researchspace.figshare.rspaceadapter;
+
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Traversal of an RSpace export zip in {@code uploadExport}, uploading to a Figshare that does nothing,
+ * so measuring archive scanning, entry streaming and upload scheduling overhead.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UploadExportBenchmark {
+
+    @Param({"100", "2000"})
+    int entryCount;
+
+    @Param({"4096"})
+    int entrySize;
+
+    File workDir;
+    File export;
+    FigshareRSpaceRepository repository;
+    ParallelUploader uploader;
+
+    @Setup
+    public void setUp() throws IOException {
+        workDir = Files.createTempDirectory("upload-export-benchmark").toFile();
+        export = new File(workDir, "export.zip");
+        writeExport(export);
+        uploader = new ParallelUploader(ParallelUploader.DEFAULT_POOL_SIZE, ParallelUploader.DEFAULT_MAX_IN_FLIGHT_PER_ARTICLE);
+        repository = new FigshareRSpaceRepository();
+        repository.setFigshare(NoOpFigshare.create(Collections.emptyList(), Collections.emptyList()));
+        repository.setUploader(uploader);
+    }
+
+    @TearDown
+    public void tearDown() {
+        uploader.shutdown();
+        FileUtils.deleteQuietly(workDir);
+    }
+
+    @Benchmark
+    public UploadReport uploadExport() throws IOException {
+        DepositJournal.Checkpoint noCheckpoint = DepositJournal.disabled().open(export, "", null);
+        return repository.uploadExport(export, NoOpFigshare.article(), noCheckpoint);
+    }
+
+    // mirrors the layout of an RSpace HTML export: documents with attachments, plus shared resources
+    private void writeExport(File zip) throws IOException {
+        Random random = new Random(42);
+        byte[] content = new byte[entrySize];
+        try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(zip.toPath()))) {
+            for (int i = 0; i < entryCount; i++) {
+                String folder = i % 10 == 0 ? "export/resources/" : "export/doc_" + (i / 20) + "/";
+                out.putNextEntry(new ZipEntry(folder + "file" + i + ".dat"));
+                random.nextBytes(content);
+                out.write(content);
+                out.closeEntry();
+            }
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.researchspace.figshare.rspaceadapter;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Token bucket whose rate is halved when the server throttles us, and recovers gradually as calls succeed.
+ */
+final class AdaptiveRateLimiter {
+
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    // fraction of the maximum rate regained per successful call
+    private static final double RECOVERY_STEP = 0.05;
+
+    private final double maxRate;
+    private final double minRate;
+    private final double burst;
+    private final LongSupplier nanoClock;
+    private double rate;
+    private double tokens;
+    private long lastRefill;
+    private long pausedUntil;
+
+    AdaptiveRateLimiter(double permitsPerSecond, int burst, LongSupplier nanoClock) {
+        if (permitsPerSecond <= 0 || burst < 1) {
+            throw new IllegalArgumentException("Rate and burst must be positive");
+        }
+        this.maxRate = permitsPerSecond;
+        this.minRate = permitsPerSecond / 64;
+        this.burst = burst;
+        this.nanoClock = nanoClock;
+        this.rate = permitsPerSecond;
+        this.tokens = burst;
+        this.lastRefill = nanoClock.getAsLong();
+        this.pausedUntil = lastRefill;
+    }
+
+    /**
+     * Takes a permit, which may not be available yet.
+     *
+     * @return nanoseconds the caller must wait before using the permit
+     */
+    synchronized long reserve() {
+        long now = nanoClock.getAsLong();
+        refill(now);
+        tokens -= 1;
+        long untilToken = tokens >= 0 ? 0 : (long) (-tokens / rate * NANOS_PER_SECOND);
+        return Math.max(untilToken, pausedUntil - now);
+    }
+
+    synchronized void onSuccess() {
+        rate = Math.min(maxRate, rate + maxRate * RECOVERY_STEP);
+    }
+
+    /**
+     * @param pauseNanos how long the server asked us to wait before calling again
+     */
+    synchronized void onThrottled(long pauseNanos) {
+        long now = nanoClock.getAsLong();
+        refill(now);
+        rate = Math.max(minRate, rate / 2);
+        tokens = Math.min(tokens, 0);
+        pausedUntil = Math.max(pausedUntil, now + pauseNanos);
+    }
+
+    synchronized double getRate() {
+        return rate;
+    }
+
+    private void refill(long now) {
+        tokens = Math.min(burst, tokens + (double) (now - lastRefill) / NANOS_PER_SECOND * rate);
+        lastRefill = now;
+    }
+}
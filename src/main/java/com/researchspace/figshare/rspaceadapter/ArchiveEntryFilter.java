@@ -0,0 +1,129 @@
+package com.researchspace.figshare.rspaceadapter;
+
+import lombok.Builder;
+import lombok.Singular;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+
+/**
+ * Rules choosing which entries of an archive are uploaded as individual files. Rules are compiled once,
+ * so instances are cheap to apply to every entry of a large archive, and are safe to share between threads.
+ * <p>
+ * An entry is uploaded if it's included and not excluded:
+ * <ul>
+ * <li>if there are no include rules, every entry is included; otherwise an entry is included if it matches
+ * an include glob or has an included extension
+ * <li>an entry is excluded if it matches an exclude glob, has an excluded extension, or is larger than
+ * {@code maxEntryBytes}
+ * </ul>
+ * Globs are matched against the whole entry name: <code>*</code> and <code>?</code> match within a directory,
+ * and <code>**</code> matches across directories. Extensions are compared ignoring case, without the dot.
+ */
+public final class ArchiveEntryFilter implements Predicate<ZipEntry> {
+
+    /**
+     * Excludes the icons and stylesheets of RSpace HTML exports, in a resources folder below the export's
+     * top-level folder. A top-level resources folder is uploaded.
+     */
+    public static final ArchiveEntryFilter DEFAULT = ArchiveEntryFilter.builder().exclude("*/**/resources/**")
+            .build();
+
+    /**
+     * Includes every entry
+     */
+    public static final ArchiveEntryFilter ALL = ArchiveEntryFilter.builder().build();
+
+    private final Pattern includes;
+    private final Set<String> includedExtensions;
+    private final Pattern excludes;
+    private final Set<String> excludedExtensions;
+    private final long maxEntryBytes;
+
+    /**
+     * @param maxEntryBytes entries larger than this are excluded; 0 or less for no limit
+     */
+    @Builder
+    private ArchiveEntryFilter(@Singular List<String> includes, @Singular List<String> includedExtensions,
+                               @Singular List<String> excludes, @Singular List<String> excludedExtensions,
+                               long maxEntryBytes) {
+        this.includes = compile(includes);
+        this.includedExtensions = normalise(includedExtensions);
+        this.excludes = compile(excludes);
+        this.excludedExtensions = normalise(excludedExtensions);
+        this.maxEntryBytes = maxEntryBytes > 0 ? maxEntryBytes : Long.MAX_VALUE;
+    }
+
+    @Override
+    public boolean test(ZipEntry entry) {
+        return accepts(entry.getName(), entry.getSize());
+    }
+
+    /**
+     * @param size size in bytes, or -1 if not known
+     */
+    public boolean accepts(String name, long size) {
+        String extension = extension(name);
+        boolean included = includes == null && includedExtensions.isEmpty()
+                || includes != null && includes.matcher(name).matches()
+                || includedExtensions.contains(extension);
+        return included
+                && !(excludes != null && excludes.matcher(name).matches())
+                && !excludedExtensions.contains(extension)
+                && size <= maxEntryBytes;
+    }
+
+    private static String extension(String name) {
+        int dot = name.lastIndexOf('.');
+        return dot > name.lastIndexOf('/') ? name.substring(dot + 1).toLowerCase(Locale.ROOT) : "";
+    }
+
+    private static Set<String> normalise(Collection<String> extensions) {
+        return extensions.stream().map(e -> e.startsWith(".") ? e.substring(1) : e)
+                .map(e -> e.toLowerCase(Locale.ROOT)).collect(Collectors.toUnmodifiableSet());
+    }
+
+    /**
+     * @return a pattern matching any of {@code globs}, or <code>null</code> if there are none
+     */
+    private static Pattern compile(List<String> globs) {
+        if (globs.isEmpty()) {
+            return null;
+        }
+        return Pattern.compile(globs.stream().map(ArchiveEntryFilter::toRegex)
+                .collect(Collectors.joining("|", "(?:", ")")));
+    }
+
+    static String toRegex(String glob) {
+        StringBuilder regex = new StringBuilder();
+        for (int i = 0; i < glob.length(); i++) {
+            char c = glob.charAt(i);
+            if (c == '*' && i + 1 < glob.length() && glob.charAt(i + 1) == '*') {
+                i++;
+                if (i + 1 < glob.length() && glob.charAt(i + 1) == '/') {
+                    // "**/" matches any number of directories, including none
+                    i++;
+                    regex.append("(?:.*/)?");
+                } else {
+                    regex.append(".*");
+                }
+            } else if (c == '*') {
+                regex.append("[^/]*");
+            } else if (c == '?') {
+                regex.append("[^/]");
+            } else {
+                if ("\\.[]{}()<>+-=!^$|".indexOf(c) >= 0) {
+                    regex.append('\\');
+                }
+                regex.append(c);
+            }
+        }
+        return regex.toString();
+    }
+}
@@ -0,0 +1,75 @@
+package com.researchspace.figshare.rspaceadapter;
+
+/**
+ * What is uploaded when an RSpace export archive is deposited. Uploading both the archive and its entries
+ * sends most of the content twice, which matters for large exports.
+ * <p>
+ * The strategy used is recorded as an article tag, e.g. 'rspace-upload-archive'.
+ */
+public enum ArchiveUploadStrategy {
+
+    /**
+     * Upload the archive as a single file. Readers must download and unzip it to view its contents.
+     */
+    ARCHIVE_ONLY("archive"),
+
+    /**
+     * Upload each archive entry as an individual file, apart from those in the export's resources folder.
+     */
+    ENTRIES_ONLY("entries"),
+
+    /**
+     * Upload the archive, and its entries as individual files.
+     */
+    BOTH("archive-and-entries"),
+
+    /**
+     * {@link #BOTH} for archives up to {@link #AUTO_THRESHOLD_BYTES}, {@link #ARCHIVE_ONLY} for larger ones; the default.
+     */
+    AUTO(null);
+
+    public static final long AUTO_THRESHOLD_BYTES = 50L * 1024 * 1024;
+
+    private static final String TAG_PREFIX = "rspace-upload-";
+
+    private final String label;
+
+    ArchiveUploadStrategy(String label) {
+        this.label = label;
+    }
+
+    /**
+     * @return the strategy to use for an archive of this size; never {@link #AUTO}
+     */
+    public ArchiveUploadStrategy resolve(long archiveBytes) {
+        if (this != AUTO) {
+            return this;
+        }
+        return archiveBytes <= AUTO_THRESHOLD_BYTES ? BOTH : ARCHIVE_ONLY;
+    }
+
+    public boolean includesArchive() {
+        return this != ENTRIES_ONLY;
+    }
+
+    public boolean includesEntries() {
+        return this == ENTRIES_ONLY || this == BOTH;
+    }
+
+    /**
+     * @return <code>true</code> if {@code tag} records the strategy used for an article
+     */
+    static boolean isStrategyTag(String tag) {
+        return tag != null && tag.startsWith(TAG_PREFIX);
+    }
+
+    /**
+     * @return the article tag recording that this strategy was used
+     */
+    public String getTag() {
+        if (this == AUTO) {
+            throw new IllegalStateException("AUTO must be resolved to a strategy for a particular archive");
+        }
+        return TAG_PREFIX + label;
+    }
+}
@@ -0,0 +1,107 @@
+package com.researchspace.figshare.rspaceadapter;
+
+import com.researchspace.figshare.model.ArticlePost;
+import com.researchspace.figshare.model.Author;
+
+import java.security.MessageDigest;
+import java.util.List;
+
+/**
+ * Identifies the article a deposit creates, for naming {@link DepositJournal} and {@link ContentHashIndex} files.
+ * <p>
+ * The key is an MD5 of the fields this adapter sets on an {@link ArticlePost}, fed to the digest through a
+ * small buffer. Unlike <code>toString()</code>, it doesn't change with the model library's formatting, and doesn't
+ * build a string of the whole article, which can be hundreds of KB for an article with many authors.
+ * <p>
+ * The tag recording the {@link ArchiveUploadStrategy} is left out: {@link ArchiveUploadStrategy#AUTO} picks it
+ * by the export's size, and an export that grows past the threshold is still a new version of the same article.
+ */
+final class ArticleKey {
+
+    private static final int BUFFER_SIZE = 1024;
+
+    private final MessageDigest md5 = Checksums.newMd5();
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int position;
+
+    private ArticleKey() {
+    }
+
+    static String of(ArticlePost article) {
+        ArticleKey key = new ArticleKey();
+        key.put(article.getTitle());
+        key.put(article.getDescription());
+        List<Author> authors = article.getAuthors();
+        key.put(authors == null ? -1 : authors.size());
+        if (authors != null) {
+            for (Author author : authors) {
+                key.put(author.getName());
+                key.put(author.getId() == null ? null : author.getId().toString());
+            }
+        }
+        List<Long> categories = article.getCategories();
+        key.put(categories == null ? -1 : categories.size());
+        if (categories != null) {
+            for (Long category : categories) {
+                key.put(category == null ? null : category.toString());
+            }
+        }
+        List<String> tags = article.getTags();
+        if (tags == null) {
+            key.put(-1);
+        } else {
+            key.put((int) tags.stream().filter(tag -> !ArchiveUploadStrategy.isStrategyTag(tag)).count());
+            for (String tag : tags) {
+                if (!ArchiveUploadStrategy.isStrategyTag(tag)) {
+                    key.put(tag);
+                }
+            }
+        }
+        key.put(article.getLicense() == null ? null : article.getLicense().toString());
+        return key.digest();
+    }
+
+    // length-prefixed, so that field boundaries can't be confused
+    private void put(String value) {
+        if (value == null) {
+            put(-1);
+            return;
+        }
+        put(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            // UTF-8, encoding surrogates separately, so that ASCII takes a byte per character
+            char c = value.charAt(i);
+            ensureSpace(3);
+            if (c < 0x80) {
+                buffer[position++] = (byte) c;
+            } else if (c < 0x800) {
+                buffer[position++] = (byte) (0xc0 | (c >>> 6));
+                buffer[position++] = (byte) (0x80 | (c & 0x3f));
+            } else {
+                buffer[position++] = (byte) (0xe0 | (c >>> 12));
+                buffer[position++] = (byte) (0x80 | ((c >>> 6) & 0x3f));
+                buffer[position++] = (byte) (0x80 | (c & 0x3f));
+            }
+        }
+    }
+
+    private void put(int value) {
+        ensureSpace(4);
+        buffer[position++] = (byte) (value >>> 24);
+        buffer[position++] = (byte) (value >>> 16);
+        buffer[position++] = (byte) (value >>> 8);
+        buffer[position++] = (byte) value;
+    }
+
+    private void ensureSpace(int bytes) {
+        if (position + bytes > buffer.length) {
+            md5.update(buffer, 0, position);
+            position = 0;
+        }
+    }
+
+    private String digest() {
+        md5.update(buffer, 0, position);
+        return Checksums.toHex(md5.digest());
+    }
+}
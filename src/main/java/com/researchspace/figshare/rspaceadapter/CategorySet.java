@@ -0,0 +1,72 @@
+package com.researchspace.figshare.rspaceadapter;
+
+import com.researchspace.figshare.model.FigshareCategory;
+import com.researchspace.repository.spi.Subject;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static java.util.Comparator.comparing;
+
+/**
+ * Immutable set of Figshare categories, sorted by title and indexed by title for constant-time lookup,
+ * and arranged as a {@link CategoryTree} for hierarchical and prefix queries. Instances are safe to share between threads.
+ */
+public final class CategorySet {
+
+    private final List<FigshareCategory> categories;
+
+    private final Map<String, FigshareCategory> byTitle;
+
+    private final List<Subject> subjects;
+
+    private final CategoryTree tree;
+
+    private CategorySet(List<FigshareCategory> categories) {
+        List<FigshareCategory> sorted = new ArrayList<>(categories);
+        sorted.sort(comparing(FigshareCategory::getTitle));
+        Map<String, FigshareCategory> index = new HashMap<>(sorted.size() * 2);
+        // titles aren't unique; as with a linear search of the sorted list, the first one wins
+        sorted.forEach(c -> index.putIfAbsent(c.getTitle(), c));
+        this.categories = Collections.unmodifiableList(sorted);
+        this.byTitle = index;
+        List<Subject> asSubjects = new ArrayList<>(sorted.size());
+        sorted.forEach(c -> asSubjects.add(new Subject(c.getTitle())));
+        this.subjects = Collections.unmodifiableList(asSubjects);
+        this.tree = new CategoryTree(this.categories);
+    }
+
+    public static CategorySet of(List<FigshareCategory> categories) {
+        return new CategorySet(categories);
+    }
+
+    /**
+     * @return categories sorted by title
+     */
+    public List<FigshareCategory> getCategories() {
+        return categories;
+    }
+
+    /**
+     * @return a subject for each category, sorted by name
+     */
+    public List<Subject> getSubjects() {
+        return subjects;
+    }
+
+    public CategoryTree getTree() {
+        return tree;
+    }
+
+    public Optional<FigshareCategory> findByTitle(String title) {
+        return Optional.ofNullable(byTitle.get(title));
+    }
+
+    public boolean isEmpty() {
+        return categories.isEmpty();
+    }
+}
@@ -0,0 +1,156 @@
+package com.researchspace.figshare.rspaceadapter;
+
+import com.researchspace.figshare.model.FigshareCategory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Immutable tree of Figshare categories, linked by their parent ids, with a sorted index of titles for
+ * case-insensitive prefix search. Categories whose parent isn't in the tree are roots.
+ * Instances are safe to share between threads.
+ */
+public final class CategoryTree {
+
+    private final Map<Long, FigshareCategory> byId;
+
+    private final Map<Long, List<FigshareCategory>> children;
+
+    private final List<FigshareCategory> roots;
+
+    // lower-cased titles in ascending order, and the category with each title
+    private final String[] sortedKeys;
+
+    private final FigshareCategory[] sortedCategories;
+
+    /**
+     * @param categories categories sorted by title; children are listed in the same order
+     */
+    CategoryTree(List<FigshareCategory> categories) {
+        Map<Long, FigshareCategory> ids = new HashMap<>(categories.size() * 2);
+        categories.stream().filter(c -> c.getId() != null).forEach(c -> ids.putIfAbsent(c.getId(), c));
+        Map<Long, List<FigshareCategory>> byParent = new HashMap<>();
+        List<FigshareCategory> topLevel = new ArrayList<>();
+        for (FigshareCategory category : categories) {
+            Long parentId = category.getParentId();
+            if (parentId != null && ids.containsKey(parentId) && !parentId.equals(category.getId())) {
+                byParent.computeIfAbsent(parentId, k -> new ArrayList<>()).add(category);
+            } else {
+                topLevel.add(category);
+            }
+        }
+        byParent.replaceAll((k, v) -> Collections.unmodifiableList(v));
+        this.byId = ids;
+        this.children = byParent;
+        this.roots = Collections.unmodifiableList(topLevel);
+
+        Integer[] order = new Integer[categories.size()];
+        String[] keys = new String[categories.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+            keys[i] = key(categories.get(i).getTitle());
+        }
+        // stable, so categories with the same title stay in their given order
+        Arrays.sort(order, (a, b) -> keys[a].compareTo(keys[b]));
+        this.sortedKeys = new String[order.length];
+        this.sortedCategories = new FigshareCategory[order.length];
+        for (int i = 0; i < order.length; i++) {
+            sortedKeys[i] = keys[order[i]];
+            sortedCategories[i] = categories.get(order[i]);
+        }
+    }
+
+    private static String key(String title) {
+        return title == null ? "" : title.toLowerCase(Locale.ROOT);
+    }
+
+    public Optional<FigshareCategory> findById(long id) {
+        return Optional.ofNullable(byId.get(id));
+    }
+
+    /**
+     * @return categories without a parent, sorted by title
+     */
+    public List<FigshareCategory> getRoots() {
+        return roots;
+    }
+
+    /**
+     * @return direct children of category {@code id}, sorted by title
+     */
+    public List<FigshareCategory> getChildren(long id) {
+        return children.getOrDefault(id, Collections.emptyList());
+    }
+
+    /**
+     * @return ancestors of category {@code id}, starting from its root; empty for a root or unknown category
+     */
+    public List<FigshareCategory> getAncestors(long id) {
+        List<FigshareCategory> ancestors = new ArrayList<>();
+        FigshareCategory current = byId.get(id);
+        // bounded by the tree size, in case Figshare ever returns a cycle
+        while (current != null && ancestors.size() < byId.size()) {
+            Long parentId = current.getParentId();
+            current = parentId == null || parentId.equals(current.getId()) ? null : byId.get(parentId);
+            if (current != null) {
+                ancestors.add(current);
+            }
+        }
+        Collections.reverse(ancestors);
+        return ancestors;
+    }
+
+    /**
+     * @return <code>true</code> if category {@code id} is below category {@code ancestorId}
+     */
+    public boolean isDescendant(long id, long ancestorId) {
+        return getAncestors(id).stream().anyMatch(a -> a.getId() == ancestorId);
+    }
+
+    /**
+     * Finds categories whose titles start with {@code prefix}, ignoring case, in order of title.
+     * Takes time logarithmic in the number of categories, plus the size of the page.
+     *
+     * @param offset index of the first match to return
+     * @param limit  maximum number of matches to return
+     */
+    public Page<FigshareCategory> search(String prefix, int offset, int limit) {
+        if (offset < 0 || limit < 0) {
+            throw new IllegalArgumentException("offset and limit must not be negative");
+        }
+        String key = key(prefix);
+        int from = lowerBound(key);
+        // every title starting with the prefix sorts before this
+        int to = lowerBound(key + Character.MAX_VALUE);
+        int total = to - from;
+        int start = Math.min(from + offset, to);
+        int end = (int) Math.min((long) start + limit, to);
+        List<FigshareCategory> items = Collections.unmodifiableList(
+                Arrays.asList(Arrays.copyOfRange(sortedCategories, start, end)));
+        return new Page<>(items, offset, total);
+    }
+
+    private int lowerBound(String key) {
+        int low = 0;
+        int high = sortedKeys.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sortedKeys[mid].compareTo(key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    public int size() {
+        return sortedCategories.length;
+    }
+}
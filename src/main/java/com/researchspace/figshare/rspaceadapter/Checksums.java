@@ -0,0 +1,76 @@
+package com.researchspace.figshare.rspaceadapter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * MD5 helpers. MD5 is what Figshare uses to verify uploaded files, so it's used for local content hashes too.
+ */
+final class Checksums {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private Checksums() {
+    }
+
+    static MessageDigest newMd5() {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("MD5 is required to be supported by every JVM", e);
+        }
+    }
+
+    /**
+     * Updates {@code digest} with the rest of {@code in}, without closing it.
+     */
+    static void update(MessageDigest digest, InputStream in) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            digest.update(buffer, 0, read);
+        }
+    }
+
+    /**
+     * @return hex-encoded MD5 of the stream's content; the stream is closed
+     */
+    static String md5Hex(InputStream in) throws IOException {
+        MessageDigest md5 = newMd5();
+        try (in) {
+            update(md5, in);
+        }
+        return toHex(md5.digest());
+    }
+
+    /**
+     * Updates {@code digest} with the content of {@code file}, read as memory-mapped parts.
+     */
+    static void update(MessageDigest digest, Path file) throws IOException {
+        try (FilePartReader parts = new FilePartReader(file)) {
+            for (int i = 0; i < parts.getPartCount(); i++) {
+                digest.update(parts.readPart(i));
+            }
+        }
+    }
+
+    /**
+     * @return hex-encoded MD5 of the file's content
+     */
+    static String md5Hex(Path file) throws IOException {
+        MessageDigest md5 = newMd5();
+        update(md5, file);
+        return toHex(md5.digest());
+    }
+
+    static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return hex.toString();
+    }
+}
@@ -0,0 +1,87 @@
+package com.researchspace.figshare.rspaceadapter;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Stops calls to a service that is down, and lets a single trial call through once {@code openNanos} have passed.
+ */
+final class CircuitBreaker {
+
+    enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final long openNanos;
+    private final LongSupplier nanoClock;
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private boolean trialInFlight;
+
+    CircuitBreaker(int failureThreshold, long openNanos, LongSupplier nanoClock) {
+        if (failureThreshold < 1) {
+            throw new IllegalArgumentException("failureThreshold must be at least 1 but was " + failureThreshold);
+        }
+        this.failureThreshold = failureThreshold;
+        this.openNanos = openNanos;
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * @return <code>true</code> if a call may be made now
+     */
+    synchronized boolean tryAcquire() {
+        if (state == State.OPEN && nanoClock.getAsLong() - openedAt >= openNanos) {
+            state = State.HALF_OPEN;
+            trialInFlight = false;
+        }
+        if (state == State.HALF_OPEN) {
+            if (trialInFlight) {
+                return false;
+            }
+            trialInFlight = true;
+            return true;
+        }
+        return state == State.CLOSED;
+    }
+
+    /**
+     * Gives up a call allowed by {@link #tryAcquire()} that was never made, so another call can be the trial.
+     */
+    synchronized void releaseTrial() {
+        trialInFlight = false;
+    }
+
+    /**
+     * Records a call that reached the service, even if the service rejected it.
+     */
+    synchronized void recordAvailable() {
+        consecutiveFailures = 0;
+        trialInFlight = false;
+        state = State.CLOSED;
+    }
+
+    /**
+     * Records a call that failed because the service was unreachable or erroring.
+     */
+    synchronized void recordUnavailable() {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            state = State.OPEN;
+            openedAt = nanoClock.getAsLong();
+            trialInFlight = false;
+        }
+    }
+
+    /**
+     * @return nanoseconds until a trial call will be let through, or 0 if calls are allowed
+     */
+    synchronized long getRemainingOpenNanos() {
+        return state == State.OPEN ? Math.max(0, openNanos - (nanoClock.getAsLong() - openedAt)) : 0;
+    }
+
+    synchronized State getState() {
+        return state;
+    }
+}
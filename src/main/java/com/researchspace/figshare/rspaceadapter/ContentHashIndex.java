@@ -0,0 +1,192 @@
+package com.researchspace.figshare.rspaceadapter;
+
+import com.researchspace.figshare.model.Location;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * On-disk index of the MD5 hashes of files uploaded to Figshare articles, so that re-depositing a slowly-changing
+ * export uploads only the files that are new or have changed.
+ * <p>
+ * Deposits by the same account with identical article metadata are treated as versions of the same article:
+ * the first creates the article, and later ones upload their new and changed files to it. A file is unchanged
+ * if a file with the same name and MD5 has already been uploaded to the article; this is checked as each file is
+ * uploaded, using an MD5 computed while it's read to be spooled. Files are never deleted from the article, so
+ * a changed file is added alongside its earlier version.
+ */
+@Slf4j
+public class ContentHashIndex {
+
+    private static final String ARTICLE = "article";
+    private static final String FILE = "file";
+
+    private final Path directory;
+
+    /**
+     * @param directory where index files are kept; created if it does not exist
+     */
+    public ContentHashIndex(Path directory) throws IOException {
+        this.directory = Files.createDirectories(directory);
+    }
+
+    private ContentHashIndex() {
+        this.directory = null;
+    }
+
+    /**
+     * @return an index that records nothing, so every file is uploaded
+     */
+    public static ContentHashIndex disabled() {
+        return new ContentHashIndex();
+    }
+
+    /**
+     * Opens the index for an account's articles with the given metadata.
+     *
+     * @param articleKey identifies the article being created
+     * @param account    identifies the Figshare account depositing, such as its access token, which is only stored
+     *                   hashed; or <code>null</code> for the repository's own client
+     */
+    public Entry open(String articleKey, String account) throws IOException {
+        if (directory == null) {
+            return new Entry(null);
+        }
+        // the account is length-prefixed, so no account and key pair hashes the same as another
+        String owner = account == null ? "" : account;
+        String keyed = owner.length() + ":" + owner + articleKey;
+        String key = Checksums.md5Hex(new ByteArrayInputStream(keyed.getBytes(StandardCharsets.UTF_8)));
+        Entry entry = new Entry(directory.resolve(key + ".index"));
+        entry.load();
+        return entry;
+    }
+
+    /**
+     * @return <code>false</code> if this index records nothing
+     */
+    public boolean isEnabled() {
+        return directory != null;
+    }
+
+    /**
+     * Hashes of the files uploaded to one article. Safe for use by concurrent upload threads.
+     */
+    public static class Entry implements UploadListener {
+
+        private final Path file;
+        private Location article;
+        private final Set<String> uploaded = new HashSet<>();
+        // hashes computed while checking sources, so they're not computed again once uploaded
+        private final Map<UploadSource, String> hashes = new ConcurrentHashMap<>();
+
+        Entry(Path file) {
+            this.file = file;
+        }
+
+        private void load() throws IOException {
+            if (!Files.exists(file)) {
+                return;
+            }
+            List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+            for (String line : lines) {
+                String[] parts = line.split(" ", 3);
+                if (parts.length < 3) {
+                    continue; // partially written line from an earlier crash
+                }
+                if (ARTICLE.equals(parts[0])) {
+                    article = new Location(new URL(parts[1]), Collections.emptyList(), parts[2]);
+                } else if (FILE.equals(parts[0])) {
+                    uploaded.add(parts[1] + " " + parts[2]);
+                }
+            }
+        }
+
+        /**
+         * @return the article that earlier deposits with the same metadata were uploaded to, if any
+         */
+        public synchronized Optional<Location> getArticle() {
+            return Optional.ofNullable(article);
+        }
+
+        public synchronized void recordArticle(Location article) throws IOException {
+            this.article = article;
+            append(ARTICLE + " " + article.getLocation() + " " + article.getId());
+        }
+
+        // so that each source's MD5 is computed as it's spooled, rather than by reading it again
+        @Override
+        public void uploadsStarting(List<? extends UploadSource> sources) {
+            if (file != null) {
+                sources.forEach(UploadSource::digestOnAcquire);
+            }
+        }
+
+        /**
+         * Computes the MD5 of {@code source}, unless the index is disabled; it's only read again if it wasn't
+         * digested when acquired.
+         *
+         * @return <code>true</code> if the same content has already been uploaded to the article with the same name
+         */
+        @Override
+        public boolean isUnchanged(UploadSource source) throws IOException {
+            if (file == null) {
+                return false;
+            }
+            String key = uploadKey(source);
+            synchronized (this) {
+                return uploaded.contains(key);
+            }
+        }
+
+        @Override
+        public void uploaded(UploadSource source) {
+            if (file == null) {
+                return;
+            }
+            try {
+                String key = uploadKey(source);
+                synchronized (this) {
+                    uploaded.add(key);
+                    append(FILE + " " + key);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private String uploadKey(UploadSource source) throws IOException {
+            String md5 = hashes.get(source);
+            if (md5 == null) {
+                md5 = source.computeMd5();
+                hashes.put(source, md5);
+            }
+            return md5 + " " + source.getName();
+        }
+
+        private void append(String line) throws IOException {
+            if (file == null) {
+                return;
+            }
+            try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.WRITE)) {
+                writer.write(line);
+                writer.newLine();
+            }
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.researchspace.figshare.rspaceadapter;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates numbered daemon threads, so that the adapter's background pools never prevent JVM shutdown.
+ */
+class DaemonThreadFactory implements ThreadFactory {
+
+    private final String namePrefix;
+    private final AtomicInteger count = new AtomicInteger();
+
+    DaemonThreadFactory(String namePrefix) {
+        this.namePrefix = namePrefix;
+    }
+
+    @Override
+    public Thread newThread(Runnable r) {
+        Thread t = new Thread(r, namePrefix + "-" + count.incrementAndGet());
+        t.setDaemon(true);
+        return t;
+    }
+}
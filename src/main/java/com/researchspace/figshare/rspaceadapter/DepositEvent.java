@@ -0,0 +1,39 @@
+package com.researchspace.figshare.rspaceadapter;
+
+import lombok.Value;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Summary of one phase of a deposit. Its string form is a single line of <code>key=value</code> pairs,
+ * so that log pipelines can parse it without a custom pattern.
+ */
+@Value
+public class DepositEvent {
+
+    /** name of the deposited file */
+    String deposit;
+
+    /** one of the {@link DepositPhase} names */
+    String phase;
+
+    boolean succeeded;
+
+    long durationNanos;
+
+    /** number of files the phase handled, or 0 if it doesn't handle files */
+    int files;
+
+    /** bytes the phase handled, or 0 if it doesn't handle files */
+    long bytes;
+
+    @Override
+    public String toString() {
+        return "deposit=" + deposit
+                + " phase=" + phase
+                + " outcome=" + (succeeded ? "success" : "failure")
+                + " durationMs=" + TimeUnit.NANOSECONDS.toMillis(durationNanos)
+                + " files=" + files
+                + " bytes=" + bytes;
+    }
+}
@@ -0,0 +1,48 @@
+package com.researchspace.figshare.rspaceadapter;
+
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.Logger;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Logs a {@link DepositEvent} for each deposit phase, at info level for successes and warn level for failures.
+ * Events are only created if they'll be logged, so nothing is allocated when the level is disabled.
+ * <p>
+ * Per-deposit detail, such as the full article metadata, is logged at debug level for a sample of deposits.
+ */
+@Slf4j
+final class DepositEventLog {
+
+    /** detail is logged for one in this many deposits */
+    static final int DETAIL_SAMPLE_INTERVAL = 100;
+
+    private static final AtomicLong DETAIL_CANDIDATES = new AtomicLong();
+
+    private DepositEventLog() {
+    }
+
+    static void phaseEnded(String deposit, String phase, boolean succeeded, long durationNanos, int files,
+                           long bytes) {
+        phaseEnded(log, deposit, phase, succeeded, durationNanos, files, bytes);
+    }
+
+    static void phaseEnded(Logger logger, String deposit, String phase, boolean succeeded, long durationNanos,
+                           int files, long bytes) {
+        if (succeeded ? logger.isInfoEnabled() : logger.isWarnEnabled()) {
+            DepositEvent event = new DepositEvent(deposit, phase, succeeded, durationNanos, files, bytes);
+            if (succeeded) {
+                logger.info("{}", event);
+            } else {
+                logger.warn("{}", event);
+            }
+        }
+    }
+
+    /**
+     * @return <code>true</code> if {@code logger} should log debug detail for this deposit
+     */
+    static boolean isDetailSampled(Logger logger) {
+        return logger.isDebugEnabled() && DETAIL_CANDIDATES.getAndIncrement() % DETAIL_SAMPLE_INTERVAL == 0;
+    }
+}
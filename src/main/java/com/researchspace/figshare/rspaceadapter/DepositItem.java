@@ -0,0 +1,17 @@
+package com.researchspace.figshare.rspaceadapter;
+
+import com.researchspace.repository.spi.SubmissionMetadata;
+import lombok.Value;
+
+import java.io.File;
+
+/**
+ * An export and its metadata, to be deposited as one article of a batch.
+ *
+ * @see FigshareRSpaceRepository#submitDeposits(java.util.List, boolean)
+ */
+@Value
+public class DepositItem {
+    File file;
+    SubmissionMetadata metadata;
+}
@@ -0,0 +1,185 @@
+package com.researchspace.figshare.rspaceadapter;
+
+import com.researchspace.figshare.model.Location;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * On-disk record of deposit progress, so that a deposit that fails part-way through can be resumed
+ * by submitting it again, rather than creating a new article and uploading everything again.
+ * <p>
+ * Each deposit has a journal file named after an MD5 hash of the deposited file's content, the article
+ * metadata's key and the depositing account. The journal records the article created for the deposit and each file uploaded to it,
+ * identified by name and {@link UploadSource#getFingerprint() fingerprint}. Lines are appended and flushed
+ * as progress is made, so the journal survives a crash. The journal is deleted once the deposit succeeds.
+ */
+@Slf4j
+public class DepositJournal {
+
+    private static final String ARTICLE = "article";
+    private static final String UPLOADED = "uploaded";
+
+    private final Path directory;
+
+    /**
+     * @param directory where journal files are kept; created if it does not exist
+     */
+    public DepositJournal(Path directory) throws IOException {
+        this.directory = Files.createDirectories(directory);
+    }
+
+    private DepositJournal() {
+        this.directory = null;
+    }
+
+    /**
+     * @return a journal that records nothing, so every deposit starts afresh
+     */
+    public static DepositJournal disabled() {
+        return new DepositJournal();
+    }
+
+    /**
+     * Opens the journal for a deposit, creating an empty one if this deposit has not been attempted before.
+     *
+     * @param toDeposit  the file being deposited
+     * @param articleKey identifies the article being created
+     * @param account    identifies the Figshare account depositing, such as its access token, which is only stored
+     *                   hashed; or <code>null</code> for the repository's own client
+     */
+    public Checkpoint open(File toDeposit, String articleKey, String account) throws IOException {
+        if (directory == null) {
+            return new Checkpoint(null);
+        }
+        String key = depositKey(toDeposit, articleKey, account);
+        Checkpoint checkpoint = new Checkpoint(directory.resolve(key + ".journal"));
+        checkpoint.load();
+        return checkpoint;
+    }
+
+    /**
+     * @return <code>false</code> if this journal records nothing
+     */
+    public boolean isEnabled() {
+        return directory != null;
+    }
+
+    private String depositKey(File toDeposit, String articleKey, String account) throws IOException {
+        MessageDigest md5 = Checksums.newMd5();
+        Checksums.update(md5, toDeposit.toPath());
+        // the account is length-prefixed, so no account and key pair hashes the same as another
+        String owner = account == null ? "" : account;
+        md5.update((owner.length() + ":" + owner + articleKey).getBytes(StandardCharsets.UTF_8));
+        return Checksums.toHex(md5.digest());
+    }
+
+    /**
+     * Progress of a single deposit. Safe for use by concurrent upload threads.
+     */
+    public static class Checkpoint implements UploadListener {
+
+        private final Path file;
+        private Location article;
+        private final Set<String> uploaded = new HashSet<>();
+
+        Checkpoint(Path file) {
+            this.file = file;
+        }
+
+        private void load() throws IOException {
+            if (file == null || !Files.exists(file)) {
+                return;
+            }
+            List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+            for (String line : lines) {
+                String[] parts = line.split(" ", 3);
+                if (parts.length < 3) {
+                    continue; // partially written line from an earlier crash
+                }
+                if (ARTICLE.equals(parts[0])) {
+                    article = new Location(new URL(parts[1]), Collections.emptyList(), parts[2]);
+                } else if (UPLOADED.equals(parts[0])) {
+                    uploaded.add(parts[1] + " " + parts[2]);
+                }
+            }
+            log.info("Resuming deposit from journal {}: article {}, {} files already uploaded", file,
+                    article == null ? "not yet created" : article.getId(), uploaded.size());
+        }
+
+        /**
+         * @return the article created by an earlier attempt at this deposit, if any
+         */
+        public synchronized Optional<Location> getArticle() {
+            return Optional.ofNullable(article);
+        }
+
+        public synchronized void recordArticle(Location article) throws IOException {
+            this.article = article;
+            append(ARTICLE + " " + article.getLocation() + " " + article.getId());
+        }
+
+        /**
+         * @return <code>true</code> if this source was uploaded by an earlier attempt at this deposit
+         */
+        public synchronized boolean isUploaded(UploadSource source) {
+            return source.getFingerprint() != null && uploaded.contains(uploadKey(source));
+        }
+
+        @Override
+        public synchronized void uploaded(UploadSource source) {
+            if (source.getFingerprint() == null) {
+                return;
+            }
+            uploaded.add(uploadKey(source));
+            try {
+                append(UPLOADED + " " + uploadKey(source));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        /**
+         * Deletes the journal once the deposit has completed.
+         */
+        public synchronized void complete() {
+            if (file == null) {
+                return;
+            }
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                log.warn("Couldn't delete completed deposit journal {}: {}", file, e.getMessage());
+            }
+        }
+
+        private String uploadKey(UploadSource source) {
+            return source.getFingerprint() + " " + source.getName();
+        }
+
+        private void append(String line) throws IOException {
+            if (file == null) {
+                return;
+            }
+            try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.WRITE)) {
+                writer.write(line);
+                writer.newLine();
+            }
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.researchspace.figshare.rspaceadapter;
+
+/**
+ * Names of the phases a deposit goes through, as reported to {@link FigshareMetrics}.
+ */
+public final class DepositPhase {
+
+    /** waiting for the {@link DepositScheduler} to admit the deposit */
+    public static final String ADMIT = "admit";
+
+    /** finding the files not uploaded by an earlier attempt, from the journal; overlaps {@link #CREATE} */
+    public static final String SCAN = "scan";
+
+    public static final String CREATE = "create";
+
+    /** resolving a link to the article; overlaps {@link #UPLOAD} */
+    public static final String LINK = "link";
+
+    public static final String UPLOAD = "upload";
+
+    public static final String PUBLISH = "publish";
+
+    private DepositPhase() {
+    }
+}
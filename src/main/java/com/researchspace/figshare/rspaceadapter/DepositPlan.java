@@ -0,0 +1,77 @@
+package com.researchspace.figshare.rspaceadapter;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.ZipFile;
+
+import static java.util.Comparator.comparingLong;
+
+/**
+ * The files a deposit would upload, found from the archive's central directory before anything is uploaded.
+ * Files are ordered largest first, so that the longest uploads start first and the upload pool isn't left
+ * waiting on one large file at the end.
+ * <p>
+ * A plan holds the archive open, as entries are read from it at upload time, so must be closed.
+ */
+@Slf4j
+public final class DepositPlan implements Closeable {
+
+    private final List<UploadSource> sources;
+    private final int excludedEntries;
+    private final long totalBytes;
+    private final ZipFile archive;
+
+    /**
+     * @param archive the open archive that sources are read from, or <code>null</code> if none
+     */
+    DepositPlan(List<UploadSource> sources, int excludedEntries, ZipFile archive) {
+        List<UploadSource> largestFirst = new ArrayList<>(sources);
+        // stable, so files of unknown or equal size keep their order
+        largestFirst.sort(comparingLong(UploadSource::getSize).reversed());
+        this.sources = Collections.unmodifiableList(largestFirst);
+        this.excludedEntries = excludedEntries;
+        this.totalBytes = sources.stream().mapToLong(s -> Math.max(s.getSize(), 0)).sum();
+        this.archive = archive;
+    }
+
+    /**
+     * @return files to upload, largest first
+     */
+    public List<UploadSource> getSources() {
+        return sources;
+    }
+
+    public int getFileCount() {
+        return sources.size();
+    }
+
+    /**
+     * @return total size of the files to upload, excluding any of unknown size
+     */
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+
+    /**
+     * @return number of archive entries not uploaded because of the {@link ArchiveEntryFilter}
+     */
+    public int getExcludedEntries() {
+        return excludedEntries;
+    }
+
+    @Override
+    public void close() {
+        if (archive != null) {
+            try {
+                archive.close();
+            } catch (IOException e) {
+                log.warn("Couldn't close archive {}: {}", archive.getName(), e.getMessage());
+            }
+        }
+    }
+}
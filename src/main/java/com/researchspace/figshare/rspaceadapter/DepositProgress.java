@@ -0,0 +1,20 @@
+package com.researchspace.figshare.rspaceadapter;
+
+import lombok.Value;
+
+/**
+ * Snapshot of a deposit's progress. File and byte counts refer to the upload phase; totals are 0
+ * until the files to upload are known.
+ */
+@Value
+public class DepositProgress {
+
+    /**
+     * One of the constants in {@link DepositPhase}
+     */
+    String phase;
+    int filesDone;
+    int filesTotal;
+    long bytesDone;
+    long bytesTotal;
+}
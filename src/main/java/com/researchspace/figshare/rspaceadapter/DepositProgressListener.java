@@ -0,0 +1,14 @@
+package com.researchspace.figshare.rspaceadapter;
+
+/**
+ * Receives progress updates for an asynchronous deposit: when each phase starts, and as each file is uploaded.
+ * Updates for the upload phase arrive from upload worker threads, so implementations must be thread-safe.
+ */
+@FunctionalInterface
+public interface DepositProgressListener {
+
+    DepositProgressListener NONE = progress -> {
+    };
+
+    void onProgress(DepositProgress progress);
+}
@@ -0,0 +1,273 @@
+package com.researchspace.figshare.rspaceadapter;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Limits the bytes being uploaded by concurrent deposits, so that several large deposits don't saturate the
+ * uplink and hold up small ones. Thread-safe, and meant to be shared by every repository in the process.
+ * <ul>
+ * <li>A deposit is admitted while the bytes in flight, including its own, stay within {@code maxBytesInFlight}.
+ * A deposit larger than that is admitted once no other large deposit is in flight.
+ * <li>Deposits of at most {@code smallDepositBytes} are always admitted straight away, so they stay quick
+ * while large deposits are running. They don't count against {@code maxBytesInFlight}, so a steady stream
+ * of them can't hold up a large deposit.
+ * <li>Other waiting deposits are admitted smallest first, unless one has waited longer than {@code maxWait},
+ * in which case the longest waiting is next, so that large deposits aren't starved.
+ * </ul>
+ */
+public class DepositScheduler {
+
+    @Value
+    @Builder
+    public static class Settings {
+        @Builder.Default
+        long maxBytesInFlight = 2L * 1024 * 1024 * 1024;
+
+        @Builder.Default
+        long smallDepositBytes = 20L * 1024 * 1024;
+
+        @Builder.Default
+        Duration maxWait = Duration.ofMinutes(10);
+    }
+
+    /**
+     * Bytes held by an admitted deposit, released when closed.
+     */
+    public final class Permit implements AutoCloseable {
+        private final long bytes;
+        private final boolean large;
+        private boolean released;
+
+        private Permit(long bytes, boolean large) {
+            this.bytes = bytes;
+            this.large = large;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        @Override
+        public void close() {
+            release(this);
+        }
+    }
+
+    private static final class Waiter {
+        final long bytes;
+        final long arrivedNanos;
+        final long sequence;
+
+        Waiter(long bytes, long arrivedNanos, long sequence) {
+            this.bytes = bytes;
+            this.arrivedNanos = arrivedNanos;
+            this.sequence = sequence;
+        }
+    }
+
+    private static final Comparator<Waiter> SHORTEST_FIRST = Comparator.<Waiter>comparingLong(w -> w.bytes)
+            .thenComparingLong(w -> w.sequence);
+
+    private final Settings settings;
+    private final LongSupplier nanoClock;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private final List<Waiter> waiting = new ArrayList<>();
+    private long sequence;
+    private long bytesInFlight;
+    private int depositsInFlight;
+    // of deposits larger than smallDepositBytes, the only ones limited by maxBytesInFlight
+    private long largeBytesInFlight;
+    private int largeDepositsInFlight;
+    private long admitted;
+    private long totalWaitNanos;
+    private long maxWaitNanos;
+
+    public DepositScheduler(Settings settings) {
+        this(settings, System::nanoTime);
+    }
+
+    DepositScheduler(Settings settings, LongSupplier nanoClock) {
+        if (settings.getMaxBytesInFlight() < 1) {
+            throw new IllegalArgumentException("maxBytesInFlight must be at least 1 but was "
+                    + settings.getMaxBytesInFlight());
+        }
+        this.settings = settings;
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * Waits until a deposit of {@code bytes} may start uploading.
+     *
+     * @return a permit, to be closed once the deposit has finished uploading
+     * @throws InterruptedIOException if interrupted while waiting
+     */
+    public Permit admit(long bytes) throws InterruptedIOException {
+        lock.lock();
+        try {
+            Waiter waiter = new Waiter(Math.max(bytes, 0), nanoClock.getAsLong(), sequence++);
+            waiting.add(waiter);
+            try {
+                while (!mayStart(waiter)) {
+                    long untilAged = untilNextAged();
+                    if (untilAged > 0) {
+                        changed.awaitNanos(untilAged);
+                    } else {
+                        changed.await();
+                    }
+                }
+            } catch (InterruptedException e) {
+                waiting.remove(waiter);
+                changed.signalAll();
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted waiting to start deposit");
+            }
+            waiting.remove(waiter);
+            boolean large = isLarge(waiter.bytes);
+            bytesInFlight += waiter.bytes;
+            depositsInFlight++;
+            if (large) {
+                largeBytesInFlight += waiter.bytes;
+                largeDepositsInFlight++;
+            }
+            long waited = nanoClock.getAsLong() - waiter.arrivedNanos;
+            admitted++;
+            totalWaitNanos += waited;
+            maxWaitNanos = Math.max(maxWaitNanos, waited);
+            // the next in line may fit in what's left
+            changed.signalAll();
+            return new Permit(waiter.bytes, large);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean mayStart(Waiter waiter) {
+        if (!isLarge(waiter.bytes)) {
+            return true;
+        }
+        if (next().orElse(null) != waiter) {
+            return false;
+        }
+        return largeDepositsInFlight == 0 || largeBytesInFlight + waiter.bytes <= settings.getMaxBytesInFlight();
+    }
+
+    private boolean isLarge(long bytes) {
+        return bytes > settings.getSmallDepositBytes();
+    }
+
+    // the large deposit to admit next: the longest waiting if it's waited too long, otherwise the smallest
+    private Optional<Waiter> next() {
+        long agedBefore = nanoClock.getAsLong() - settings.getMaxWait().toNanos();
+        Optional<Waiter> aged = waiting.stream()
+                .filter(w -> isLarge(w.bytes) && w.arrivedNanos - agedBefore <= 0)
+                .min(Comparator.comparingLong(w -> w.sequence));
+        if (aged.isPresent()) {
+            return aged;
+        }
+        return waiting.stream().filter(w -> isLarge(w.bytes)).min(SHORTEST_FIRST);
+    }
+
+    // nanos until a waiting deposit reaches maxWait, which may change the order; 0 if none will
+    private long untilNextAged() {
+        long now = nanoClock.getAsLong();
+        long maxWait = settings.getMaxWait().toNanos();
+        return waiting.stream().mapToLong(w -> w.arrivedNanos + maxWait - now).filter(n -> n > 0).min().orElse(0);
+    }
+
+    private void release(Permit permit) {
+        lock.lock();
+        try {
+            if (!permit.released) {
+                permit.released = true;
+                bytesInFlight -= permit.bytes;
+                depositsInFlight--;
+                if (permit.large) {
+                    largeBytesInFlight -= permit.bytes;
+                    largeDepositsInFlight--;
+                }
+                changed.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return number of deposits waiting to start
+     */
+    public int getQueueDepth() {
+        lock.lock();
+        try {
+            return waiting.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getBytesInFlight() {
+        lock.lock();
+        try {
+            return bytesInFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getDepositsInFlight() {
+        lock.lock();
+        try {
+            return depositsInFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return number of deposits admitted so far
+     */
+    public long getAdmittedCount() {
+        lock.lock();
+        try {
+            return admitted;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return mean time admitted deposits waited to start
+     */
+    public Duration getAverageWait() {
+        lock.lock();
+        try {
+            return Duration.ofNanos(admitted == 0 ? 0 : totalWaitNanos / admitted);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return longest time an admitted deposit waited to start
+     */
+    public Duration getMaxWait() {
+        lock.lock();
+        try {
+            return Duration.ofNanos(maxWaitNanos);
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.researchspace.figshare.rspaceadapter;
+
+import com.researchspace.figshare.api.Figshare;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Thread-safe registry of warm Figshare clients, one per access token, so that serving many users doesn't
+ * build a new client for every request.
+ * <ul>
+ * <li>Concurrent requests for a token not yet in the registry create only one client.
+ * <li>Clients not used for {@code idleTimeout} are evicted.
+ * <li>When there are more than {@code maxClients} clients, the least recently used is evicted.
+ * </ul>
+ * Clients hold no connections of their own, as templates share the pool of a {@link FigshareHttpTransport},
+ * so evicting a client just drops it, along with its rate limiter and circuit breaker state.
+ * Tokens are never logged.
+ */
+public class FigshareClientRegistry {
+
+    public static final int DEFAULT_MAX_CLIENTS = 256;
+
+    public static final Duration DEFAULT_IDLE_TIMEOUT = Duration.ofMinutes(30);
+
+    private static final class Entry {
+        final Figshare client;
+        final String account;
+        volatile long lastAccess;
+
+        Entry(Figshare client, String account, long now) {
+            this.client = client;
+            this.account = account;
+            this.lastAccess = now;
+        }
+    }
+
+    private final Map<String, Entry> clients = new ConcurrentHashMap<>();
+    private final Function<String, Figshare> factory;
+    private final int maxClients;
+    private final long idleNanos;
+    private final LongSupplier nanoClock;
+    private final AtomicLong lastSweep;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param factory creates the client for an access token
+     */
+    public FigshareClientRegistry(int maxClients, Duration idleTimeout, Function<String, Figshare> factory) {
+        this(maxClients, idleTimeout, factory, System::nanoTime);
+    }
+
+    FigshareClientRegistry(int maxClients, Duration idleTimeout, Function<String, Figshare> factory,
+                           LongSupplier nanoClock) {
+        if (maxClients < 1) {
+            throw new IllegalArgumentException("maxClients must be at least 1 but was " + maxClients);
+        }
+        this.factory = factory;
+        this.maxClients = maxClients;
+        this.idleNanos = idleTimeout.toNanos();
+        this.nanoClock = nanoClock;
+        this.lastSweep = new AtomicLong(nanoClock.getAsLong());
+    }
+
+    /**
+     * @return the client for {@code token}, creating it if it's not in the registry
+     */
+    public Figshare get(String token) {
+        long now = nanoClock.getAsLong();
+        Entry existing = clients.get(token);
+        if (existing != null) {
+            hits.increment();
+            existing.lastAccess = now;
+            evictIdleIfDue(now);
+            return existing.client;
+        }
+        misses.increment();
+        Entry entry = clients.computeIfAbsent(token, t -> new Entry(factory.apply(t), accountKey(t), now));
+        entry.lastAccess = now;
+        evictIdleIfDue(now);
+        evictIfFull();
+        return entry.client;
+    }
+
+    /**
+     * @return the client in the registry for the token whose {@link #accountKey(String) account key} is
+     * {@code account}, if there is one
+     */
+    public Optional<Figshare> findByAccount(String account) {
+        return clients.values().stream().filter(e -> e.account.equals(account)).map(e -> e.client).findFirst();
+    }
+
+    /**
+     * @return a key identifying the account of {@code token}, which can be saved without revealing the token
+     */
+    public static String accountKey(String token) {
+        return Checksums.toHex(Checksums.newMd5().digest(token.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    // sweeping every access would make each lookup linear in the number of clients
+    private void evictIdleIfDue(long now) {
+        long last = lastSweep.get();
+        if (now - last >= idleNanos / 2 && lastSweep.compareAndSet(last, now)) {
+            evictIdle();
+        }
+    }
+
+    /**
+     * Evicts clients that haven't been used for the idle timeout.
+     */
+    public void evictIdle() {
+        long now = nanoClock.getAsLong();
+        clients.forEach((token, entry) -> {
+            if (now - entry.lastAccess >= idleNanos) {
+                evict(token, entry);
+            }
+        });
+    }
+
+    private void evictIfFull() {
+        while (clients.size() > maxClients) {
+            Optional<Map.Entry<String, Entry>> leastRecentlyUsed = clients.entrySet().stream()
+                    .min(Comparator.comparingLong(e -> e.getValue().lastAccess));
+            if (leastRecentlyUsed.isEmpty()) {
+                return;
+            }
+            evict(leastRecentlyUsed.get().getKey(), leastRecentlyUsed.get().getValue());
+        }
+    }
+
+    private void evict(String token, Entry entry) {
+        if (clients.remove(token, entry)) {
+            evictions.increment();
+        }
+    }
+
+    /**
+     * Evicts every client, so that the next request for any token creates a new one.
+     */
+    public void invalidateAll() {
+        clients.forEach(this::evict);
+    }
+
+    public int size() {
+        return clients.size();
+    }
+
+    /**
+     * @return number of requests served by a client already in the registry
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * @return number of requests for a token that wasn't in the registry
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+}
@@ -0,0 +1,188 @@
+package com.researchspace.figshare.rspaceadapter;
+
+import lombok.Builder;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pooled HTTP transport for {@link com.researchspace.figshare.impl.FigshareTemplate}s, so that connections and
+ * TLS sessions are reused across API calls, deposits and users rather than set up afresh for each template.
+ * <p>
+ * One transport is normally shared by the whole JVM: see {@link #shared()}. Thread-safe.
+ */
+@Slf4j
+public class FigshareHttpTransport implements Closeable {
+
+    /**
+     * Connection pool, timeout and compression settings.
+     */
+    @Value
+    @Builder
+    public static class Settings {
+        @Builder.Default
+        int maxConnections = 50;
+
+        /** Figshare API calls all go to one host, and uploads to another, so this is the effective limit per use */
+        @Builder.Default
+        int maxConnectionsPerRoute = 20;
+
+        @Builder.Default
+        Duration connectTimeout = Duration.ofSeconds(10);
+
+        /** longest wait for data once connected; generous, as uploading a file part can be slow */
+        @Builder.Default
+        Duration socketTimeout = Duration.ofSeconds(120);
+
+        /** longest wait for a pooled connection to become free */
+        @Builder.Default
+        Duration connectionRequestTimeout = Duration.ofSeconds(30);
+
+        /** how long an idle connection is kept, if the server doesn't say */
+        @Builder.Default
+        Duration keepAlive = Duration.ofSeconds(30);
+
+        /** whether to request and decompress gzip-compressed responses */
+        @Builder.Default
+        boolean compression = true;
+    }
+
+    /**
+     * A transport created on first use, whose settings may be configured once before then.
+     * {@link #shared()} uses one for the whole JVM; repositories can be given their own transport with
+     * {@link FigshareRSpaceRepository#setHttpTransport(FigshareHttpTransport)}.
+     */
+    public static final class Lazy {
+        private FigshareHttpTransport transport;
+
+        /**
+         * @return the transport, created with default settings unless {@link #configure(Settings)} was called first
+         */
+        public synchronized FigshareHttpTransport get() {
+            if (transport == null) {
+                transport = new FigshareHttpTransport(Settings.builder().build());
+            }
+            return transport;
+        }
+
+        /**
+         * Configures the transport. This must be called once, before the transport is used.
+         *
+         * @throws IllegalStateException if the transport was already created with different settings
+         */
+        public synchronized void configure(Settings settings) {
+            if (transport != null && !transport.settings.equals(settings)) {
+                throw new IllegalStateException("The Figshare HTTP transport is already in use with settings "
+                        + transport.settings);
+            }
+            if (transport == null) {
+                transport = new FigshareHttpTransport(settings);
+            }
+        }
+    }
+
+    private static final Lazy SHARED = new Lazy();
+
+    private final Settings settings;
+    private final PoolingHttpClientConnectionManager connectionManager;
+    private final CloseableHttpClient httpClient;
+    private final ClientHttpRequestFactory requestFactory;
+    private final ClientHttpRequestFactory streamingRequestFactory;
+
+    /**
+     * @return the transport shared by the JVM, created with default settings unless
+     * {@link #configureShared(Settings)} was called first
+     */
+    public static FigshareHttpTransport shared() {
+        return SHARED.get();
+    }
+
+    /**
+     * Configures the shared transport. This must be called once, at startup, before the shared transport is used.
+     *
+     * @throws IllegalStateException if the shared transport was already created with different settings
+     */
+    public static void configureShared(Settings settings) {
+        SHARED.configure(settings);
+    }
+
+    public FigshareHttpTransport(Settings settings) {
+        this.settings = settings;
+        connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(settings.getMaxConnections());
+        connectionManager.setDefaultMaxPerRoute(settings.getMaxConnectionsPerRoute());
+        // check connections idle for more than a couple of seconds before reuse, as the server may have closed them
+        connectionManager.setValidateAfterInactivity(2000);
+
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout((int) settings.getConnectTimeout().toMillis())
+                .setSocketTimeout((int) settings.getSocketTimeout().toMillis())
+                .setConnectionRequestTimeout((int) settings.getConnectionRequestTimeout().toMillis())
+                .build();
+        long keepAliveMillis = settings.getKeepAlive().toMillis();
+        HttpClientBuilder builder = HttpClientBuilder.create()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                .setKeepAliveStrategy((response, context) -> {
+                    long serverKeepAlive = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+                    return serverKeepAlive > 0 ? Math.min(serverKeepAlive, keepAliveMillis) : keepAliveMillis;
+                })
+                .evictExpiredConnections()
+                .evictIdleConnections(keepAliveMillis, TimeUnit.MILLISECONDS)
+                .useSystemProperties();
+        if (!settings.isCompression()) {
+            builder.disableContentCompression();
+        }
+        httpClient = builder.build();
+        requestFactory = new HttpComponentsClientHttpRequestFactory(httpClient);
+        HttpComponentsClientHttpRequestFactory streaming = new HttpComponentsClientHttpRequestFactory(httpClient);
+        streaming.setBufferRequestBody(false);
+        streamingRequestFactory = streaming;
+    }
+
+    /**
+     * @return a request factory for {@code FigshareTemplate.setRequestFactory}
+     */
+    public ClientHttpRequestFactory getRequestFactory() {
+        return requestFactory;
+    }
+
+    /**
+     * @return a request factory sharing this transport's pool, whose requests write their bodies straight to the
+     * connection rather than buffering them in memory, for uploading file parts
+     */
+    public ClientHttpRequestFactory getStreamingRequestFactory() {
+        return streamingRequestFactory;
+    }
+
+    public Settings getSettings() {
+        return settings;
+    }
+
+    /**
+     * @return current connection pool usage, for monitoring
+     */
+    public PoolStats getPoolStats() {
+        return connectionManager.getTotalStats();
+    }
+
+    /**
+     * Closes pooled connections. Templates using this transport can't be used afterwards.
+     */
+    @Override
+    public void close() throws IOException {
+        httpClient.close();
+    }
+}
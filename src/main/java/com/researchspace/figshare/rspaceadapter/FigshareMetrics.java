@@ -0,0 +1,83 @@
+package com.researchspace.figshare.rspaceadapter;
+
+import com.researchspace.figshare.api.Figshare;
+
+/**
+ * Facade for recording metrics about Figshare API calls and deposits, so that the adapter doesn't depend
+ * on a particular metrics library. Implementations might forward to Micrometer, Dropwizard, or similar.
+ * <p>
+ * Implementations must be thread-safe, and should be cheap, as they're called on the deposit path.
+ */
+public interface FigshareMetrics {
+
+    /**
+     * Outcome of a Figshare API call
+     */
+    enum Outcome {
+        SUCCESS,
+        /** 4xx response */
+        CLIENT_ERROR,
+        /** 5xx response */
+        SERVER_ERROR,
+        /** any other failure, e.g. I/O error or an error returned in a successful response */
+        ERROR
+    }
+
+    /**
+     * Records nothing; the default.
+     */
+    FigshareMetrics NONE = new FigshareMetrics() {
+        @Override
+        public void recordCall(String operation, Outcome outcome, long durationNanos) {
+        }
+
+        @Override
+        public void recordFileUpload(long bytes) {
+        }
+
+        @Override
+        public void recordDepositPhase(String phase, boolean succeeded, long durationNanos) {
+        }
+
+        @Override
+        public void recordDepositBytes(long bytes) {
+        }
+    };
+
+    /**
+     * Times a single Figshare API call.
+     *
+     * @param operation name of the {@link Figshare} method called, e.g. 'uploadFile'
+     */
+    void recordCall(String operation, Outcome outcome, long durationNanos);
+
+    /**
+     * Records the size of a file uploaded to Figshare.
+     */
+    void recordFileUpload(long bytes);
+
+    /**
+     * Times a phase of a deposit: one of the constants in {@link DepositPhase}.
+     */
+    void recordDepositPhase(String phase, boolean succeeded, long durationNanos);
+
+    /**
+     * Records the total number of bytes uploaded by a deposit.
+     */
+    void recordDepositBytes(long bytes);
+
+    /**
+     * Records the number of bytes a deposit didn't upload because the files were unchanged.
+     *
+     * @see ContentHashIndex
+     */
+    default void recordDepositBytesSaved(long bytes) {
+    }
+
+    /**
+     * @return {@code figshare}, decorated to record a call timing for every API call it makes
+     */
+    default Figshare instrument(Figshare figshare) {
+        return this == NONE ? figshare : InstrumentedFigshare.wrap(figshare, this);
+    }
+}
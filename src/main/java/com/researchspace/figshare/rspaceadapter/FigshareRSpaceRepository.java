@@ -12,52 +12,168 @@ import com.researchspace.repository.spi.IDepositor;
 import com.researchspace.repository.spi.IRepository;
 import com.researchspace.repository.spi.License;
 import com.researchspace.repository.spi.LicenseConfigInfo;
-import com.researchspace.repository.spi.LicenseDef;
 import com.researchspace.repository.spi.RepositoryConfig;
 import com.researchspace.repository.spi.RepositoryConfigurer;
 import com.researchspace.repository.spi.RepositoryOperationResult;
 import com.researchspace.repository.spi.Subject;
 import com.researchspace.repository.spi.SubmissionMetadata;
-import com.researchspace.zipprocessing.ArchiveIterator;
-import com.researchspace.zipprocessing.ArchiveIteratorImpl;
+import lombok.Value;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.web.client.RestClientException;
 
+import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.time.Duration;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 
 import static java.util.Comparator.comparing;
 import static org.apache.commons.io.FilenameUtils.getExtension;
 
+/**
+ * Deposits RSpace exports to Figshare.
+ * <p>
+ * Instances are thread-safe and can serve concurrent deposits. Configuration is held in volatile fields,
+ * and category, license and subject lists are immutable snapshots that are replaced as a whole, never modified.
+ */
 @Slf4j
 public class FigshareRSpaceRepository implements IRepository, RepositoryConfigurer {
 
-    private ObjectMapper objectMapper = new ObjectMapper();
+    private static final TypeReference<List<FigshareCategory>> CATEGORY_LIST = new TypeReference<>() {
+    };
 
-    private static final String ARCHIVE_RESOURCE_FOLDER = "/resources/";
+    private static final TypeReference<List<FigshareLicense>> LICENSE_LIST = new TypeReference<>() {
+    };
 
-    private Figshare figshare;
+    // configured once, as ObjectMapper is costly to create and thread-safe once configured
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
 
-    private ArchiveIterator archiveIterator;
+    private static final String DEPOSIT_SUCCEEDED = "Deposit succeeded.";
 
-    private List<Subject> subjects = new ArrayList<>();
+    private volatile ClientBinding client = ClientBinding.NONE;
 
-    private List<FigshareCategory> categories = new ArrayList<>();
+    private volatile FigshareMetrics metrics = FigshareMetrics.NONE;
 
-    private List<License> licenses = new ArrayList<>();
+    private volatile FigshareResilience resilience = FigshareResilience.NONE;
 
-    private List<FigshareLicense> figshareLicenses = new ArrayList<>();
+    private static final int DEFAULT_ASYNC_DEPOSIT_THREADS = 4;
+
+    // runs the stages of a deposit that overlap others; unbounded, as stages wait on one another
+    private static final ExecutorService STAGE_EXECUTOR = Executors.newCachedThreadPool(
+            new DaemonThreadFactory("figshare-deposit-stage"));
+
+    // waits for deposits to be admitted by a DepositScheduler; unbounded, as each waiting deposit holds a thread
+    private static final ExecutorService ADMISSION_EXECUTOR = Executors.newCachedThreadPool(
+            new DaemonThreadFactory("figshare-deposit-admit"));
+
+    private static final ExecutorService DEFAULT_DEPOSIT_EXECUTOR = Executors.newFixedThreadPool(
+            DEFAULT_ASYNC_DEPOSIT_THREADS, new DaemonThreadFactory("figshare-deposit"));
+
+    private volatile ExecutorService depositExecutor = DEFAULT_DEPOSIT_EXECUTOR;
+
+    private volatile ParallelUploader uploader = ParallelUploader.shared();
+
+    private volatile DepositJournal depositJournal = DepositJournal.disabled();
+
+    private volatile ContentHashIndex contentHashIndex = ContentHashIndex.disabled();
+
+    private volatile ArchiveUploadStrategy archiveUploadStrategy = ArchiveUploadStrategy.AUTO;
+
+    private volatile ArchiveEntryFilter entryFilter = ArchiveEntryFilter.DEFAULT;
+
+    private volatile long maxDepositBytes = Long.MAX_VALUE;
+
+    // null until configured, so the shared transport is only created if needed
+    private volatile FigshareHttpTransport httpTransport;
+
+    private volatile FigshareReferenceData referenceData = FigshareReferenceData.shared();
+
+    private volatile List<Subject> subjects = Collections.emptyList();
+
+    private volatile CategorySet categories = CategorySet.of(Collections.emptyList());
+
+    private volatile LicenseSet figshareLicenses = LicenseSet.of(Collections.emptyList());
+
+    private volatile FigshareClientRegistry clientRegistry;
+
+    private volatile PublishQueue publishQueue;
+
+    private volatile DepositScheduler depositScheduler;
+
+    // true for a view returned by forUser, which shares its parent's client registry
+    private final boolean view;
+
+    /**
+     * The client deposits are made with, and the account it's for, replaced as a whole so that a deposit
+     * reads both from the same configuration
+     */
+    @Value
+    private static class ClientBinding {
+        static final ClientBinding NONE = new ClientBinding(null, null, null);
+
+        // the client as set, if it didn't come from the client registry
+        Figshare configured;
+        // the access token, if the client came from the client registry
+        String token;
+        // the client as used: instrumented if metrics are being recorded, and made resilient
+        Figshare figshare;
+    }
 
     public FigshareRSpaceRepository() {
-        this.archiveIterator = new ArchiveIteratorImpl();
-        this.objectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        this.view = false;
+        this.clientRegistry = newClientRegistry(FigshareClientRegistry.DEFAULT_MAX_CLIENTS,
+                FigshareClientRegistry.DEFAULT_IDLE_TIMEOUT);
+    }
+
+    /**
+     * A view sharing all of {@code parent}'s settings, including its client registry, but with its own client
+     */
+    private FigshareRSpaceRepository(FigshareRSpaceRepository parent, String token) {
+        this.view = true;
+        this.metrics = parent.metrics;
+        this.resilience = parent.resilience;
+        this.depositExecutor = parent.depositExecutor;
+        this.uploader = parent.uploader;
+        this.depositJournal = parent.depositJournal;
+        this.contentHashIndex = parent.contentHashIndex;
+        this.archiveUploadStrategy = parent.archiveUploadStrategy;
+        this.entryFilter = parent.entryFilter;
+        this.maxDepositBytes = parent.maxDepositBytes;
+        this.httpTransport = parent.httpTransport;
+        this.referenceData = parent.referenceData;
+        this.subjects = parent.subjects;
+        this.categories = parent.categories;
+        this.figshareLicenses = parent.figshareLicenses;
+        this.clientRegistry = parent.clientRegistry;
+        this.publishQueue = parent.publishQueue;
+        this.depositScheduler = parent.depositScheduler;
+        this.client = new ClientBinding(null, token, clientRegistry.get(token));
     }
 
     /**
@@ -65,48 +181,412 @@ public class FigshareRSpaceRepository implements IRepository, RepositoryConfigur
      *
      * @param figshare
      */
-    public void setFigshare(Figshare figshare) {
-        this.figshare = figshare;
+    public synchronized void setFigshare(Figshare figshare) {
+        this.client = new ClientBinding(figshare, null, decorate(figshare));
+    }
+
+    /**
+     * Set where metrics about Figshare API calls and deposits are recorded. Defaults to {@link FigshareMetrics#NONE}
+     *
+     * @param metrics
+     */
+    public synchronized void setMetrics(FigshareMetrics metrics) {
+        checkNotView("Metrics");
+        this.metrics = metrics;
+        redecorate();
+    }
+
+    /**
+     * Set how calls to Figshare are rate-limited and retried. Defaults to {@link FigshareResilience#NONE}
+     *
+     * @param resilience
+     */
+    public synchronized void setResilience(FigshareResilience resilience) {
+        checkNotView("Resilience");
+        this.resilience = resilience;
+        redecorate();
+    }
+
+    // metrics record every attempt made by a retrying client
+    private Figshare decorate(Figshare client) {
+        return resilience.decorate(metrics.instrument(client));
+    }
+
+    // registry clients were decorated with the old settings, so are replaced
+    private void redecorate() {
+        clientRegistry.invalidateAll();
+        ClientBinding current = client;
+        if (current.getToken() != null) {
+            this.client = new ClientBinding(null, current.getToken(), clientRegistry.get(current.getToken()));
+        } else if (current.getConfigured() != null) {
+            this.client = new ClientBinding(current.getConfigured(), null, decorate(current.getConfigured()));
+        }
+    }
+
+    // a view's clients come from its parent's registry, built with the parent's settings
+    private void checkNotView(String setting) {
+        if (view) {
+            throw new IllegalStateException(setting + " can't be changed on a repository returned by forUser,"
+                    + " as it shares its parent's clients; change it on the parent");
+        }
+    }
+
+    private FigshareClientRegistry newClientRegistry(int maxClients, Duration idleTimeout) {
+        return new FigshareClientRegistry(maxClients, idleTimeout, token -> decorate(newClient(token)));
+    }
+
+    /**
+     * Set how many clients {@link #configure} and {@link #forUser} keep warm, and for how long an unused one
+     * is kept. Defaults to {@value FigshareClientRegistry#DEFAULT_MAX_CLIENTS} clients kept for 30 minutes.
+     * Clients already in the registry are discarded.
+     *
+     * @param maxClients
+     * @param idleTimeout
+     */
+    public synchronized void configureClientRegistry(int maxClients, Duration idleTimeout) {
+        checkNotView("The client registry");
+        FigshareClientRegistry old = clientRegistry;
+        this.clientRegistry = newClientRegistry(maxClients, idleTimeout);
+        old.invalidateAll();
+        String token = client.getToken();
+        if (token != null) {
+            this.client = new ClientBinding(null, token, clientRegistry.get(token));
+        }
+    }
+
+    public FigshareClientRegistry getClientRegistry() {
+        return clientRegistry;
+    }
+
+    /**
+     * Set the uploader used to upload files to new articles. Defaults to {@link ParallelUploader#shared()}
+     *
+     * @param uploader
+     */
+    public void setUploader(ParallelUploader uploader) {
+        this.uploader = uploader;
+    }
+
+    /**
+     * Set a journal to record deposit progress in, so that failed deposits are resumed when resubmitted.
+     * By default, no journal is kept.
+     *
+     * @param depositJournal
+     */
+    public void setDepositJournal(DepositJournal depositJournal) {
+        this.depositJournal = depositJournal;
+    }
+
+    /**
+     * Set an index of the files uploaded to each article, so that re-depositing an export with the same metadata
+     * uploads only new and changed files to the earlier article. By default, no index is kept.
+     *
+     * @param contentHashIndex
+     */
+    public void setContentHashIndex(ContentHashIndex contentHashIndex) {
+        this.contentHashIndex = contentHashIndex;
+    }
+
+    /**
+     * Set whether an export archive is uploaded as a single file, as individual files, or both.
+     * Defaults to {@link ArchiveUploadStrategy#AUTO}
+     *
+     * @param archiveUploadStrategy
+     */
+    public void setArchiveUploadStrategy(ArchiveUploadStrategy archiveUploadStrategy) {
+        this.archiveUploadStrategy = archiveUploadStrategy;
+    }
+
+    /**
+     * Set the rules choosing which archive entries are uploaded as individual files.
+     * Defaults to {@link ArchiveEntryFilter#DEFAULT}.
+     *
+     * @param entryFilter
+     */
+    public void setEntryFilter(ArchiveEntryFilter entryFilter) {
+        this.entryFilter = entryFilter;
+    }
+
+    /**
+     * Set the largest total size of files a deposit may upload. Larger deposits are rejected before their
+     * article is created. Defaults to no limit.
+     *
+     * @param maxDepositBytes
+     */
+    public void setMaxDepositBytes(long maxDepositBytes) {
+        this.maxDepositBytes = maxDepositBytes;
+    }
+
+    /**
+     * Set the executor that {@link #submitDepositAsync} and {@link #submitDeposits} run deposits on.
+     * Defaults to a process-wide pool of 4 threads. Uploads themselves run on the {@link ParallelUploader}'s pool.
+     *
+     * @param depositExecutor
+     */
+    public void setDepositExecutor(ExecutorService depositExecutor) {
+        this.depositExecutor = depositExecutor;
+    }
+
+    /**
+     * Set the cache that categories and licenses are fetched through, unless configured statically
+     * with {@link #setStaticFigshareConfig(String, String)}. Defaults to {@link FigshareReferenceData#shared()}
+     *
+     * @param referenceData
+     */
+    public void setReferenceData(FigshareReferenceData referenceData) {
+        this.referenceData = referenceData;
+    }
+
+    /**
+     * Set the scheduler that limits the bytes uploaded by concurrent deposits. Share one scheduler between
+     * every repository in the process for it to have effect across users. Defaults to <code>null</code>,
+     * starting every deposit straight away.
+     *
+     * @param depositScheduler
+     */
+    public void setDepositScheduler(DepositScheduler depositScheduler) {
+        this.depositScheduler = depositScheduler;
+    }
+
+    /**
+     * Set a queue that publishes articles in the background. Deposits that request publishing then return
+     * once their files are uploaded, and {@link #getPublishStatus(Long)} reports whether the article has been
+     * published yet. Articles queued before a restart are published with their owner's client once it's in the
+     * client registry again, or with the client set by {@link #setFigshare} if they were queued with it.
+     * Defaults to <code>null</code>, publishing each article before its deposit returns.
+     *
+     * @param publishQueue
+     */
+    public void setPublishQueue(PublishQueue publishQueue) {
+        this.publishQueue = publishQueue;
+        if (publishQueue != null) {
+            publishQueue.recoverWith(this::recoveryClient);
+        }
+    }
+
+    private Figshare recoveryClient(String account) {
+        if (account == null) {
+            ClientBinding current = client;
+            return current.getToken() == null ? current.getFigshare() : null;
+        }
+        return clientRegistry.findByAccount(account).orElse(null);
+    }
+
+    /**
+     * @return the status of an article queued for publishing, or empty if there's no publish queue, the
+     * article wasn't queued or {@code articleId} is <code>null</code>
+     */
+    public Optional<PublishStatus> getPublishStatus(Long articleId) {
+        PublishQueue queue = publishQueue;
+        return queue == null || articleId == null ? Optional.empty() : queue.getStatus(articleId);
+    }
+
+    /**
+     * Set the HTTP transport used by templates created in {@link #configure(RepositoryConfig)}.
+     * Defaults to {@link FigshareHttpTransport#shared()}
+     *
+     * @param httpTransport
+     */
+    public void setHttpTransport(FigshareHttpTransport httpTransport) {
+        checkNotView("The HTTP transport");
+        this.httpTransport = httpTransport;
     }
 
     /**
-     * Creates a new FigshareAPI template using access token in {@code}config.getIdentifier(){@config}
+     * Uses the Figshare client for the access token in {@code config.getIdentifier()}, from the client registry.
+     * Clients make their requests through the pooled {@link FigshareHttpTransport}.
      *
      * @param config
      */
     @Override
-    public void configure(RepositoryConfig config) {
-        this.figshare = new FigshareTemplate(config.getIdentifier());
+    public synchronized void configure(RepositoryConfig config) {
+        String token = config.getIdentifier();
+        this.client = new ClientBinding(null, token, clientRegistry.get(token));
+    }
+
+    /**
+     * Returns a repository for the user with the access token in {@code config.getIdentifier()}, sharing this
+     * repository's settings, reference data and warm client registry. Creating a view costs little more than
+     * an object allocation once the user's client is warm, so a view can be created for each request.
+     * Later changes to this repository's settings don't affect existing views.
+     * <p>
+     * Settings that decorate clients can't be changed on a view, as its clients are shared with this repository:
+     * {@link #setMetrics}, {@link #setResilience}, {@link #setHttpTransport} and {@link #configureClientRegistry}
+     * throw {@link IllegalStateException}.
+     *
+     * @param config
+     */
+    public FigshareRSpaceRepository forUser(RepositoryConfig config) {
+        return new FigshareRSpaceRepository(this, config.getIdentifier());
+    }
+
+    // files are uploaded from mapped parts, streamed over the transport, rather than by the template
+    private Figshare newClient(String token) {
+        FigshareHttpTransport configured = httpTransport;
+        FigshareHttpTransport transport = configured != null ? configured : FigshareHttpTransport.shared();
+        FigshareTemplate template = new FigshareTemplate(token);
+        template.setRequestFactory(transport.getRequestFactory());
+        return PartUploadFigshare.wrap(template, token, transport.getStreamingRequestFactory());
     }
 
     @Override
     public RepositoryOperationResult submitDeposit(IDepositor depositor, File toDeposit,
                                                    SubmissionMetadata metadata, RepositoryConfig repoCfg) {
-        log.info("Depositing file {} of size {} ", toDeposit.getAbsolutePath(), toDeposit.length());
+        if (log.isInfoEnabled()) {
+            log.info("Depositing file {} of size {}", toDeposit.getAbsolutePath(), toDeposit.length());
+        }
+        return doPost(toDeposit, toArticlePost(toDeposit, metadata), metadata);
+    }
+
+    /**
+     * Deposits without blocking the caller. The deposit runs on the executor set by
+     * {@link #setDepositExecutor(ExecutorService)}, once any {@link DepositScheduler} has admitted it.
+     * <p>
+     * Cancelling the returned future interrupts the deposit: uploads that haven't started are abandoned,
+     * and the article is not published.
+     *
+     * @param listener notified as each phase starts and as each file is uploaded
+     * @return a future completed with the outcome of the deposit. Failures talking to Figshare are reported
+     * in the {@link RepositoryOperationResult}, as for {@link #submitDeposit}; anything else thrown by the deposit,
+     * including an {@link Error}, completes it exceptionally.
+     */
+    public CompletableFuture<RepositoryOperationResult> submitDepositAsync(IDepositor depositor, File toDeposit,
+                                                                           SubmissionMetadata metadata,
+                                                                           RepositoryConfig repoCfg,
+                                                                           DepositProgressListener listener) {
+        if (log.isInfoEnabled()) {
+            log.info("Depositing file {} of size {} asynchronously", toDeposit.getAbsolutePath(), toDeposit.length());
+        }
+        return depositAsync(client, toDeposit, () -> toArticlePost(toDeposit, metadata), metadata.isPublish(),
+                listener, (article, link) -> { });
+    }
+
+    /**
+     * Deposits many exports in one call, each to its own article. Categories and licenses are resolved once for
+     * the whole batch, and items sharing the same metadata instance and upload strategy share one {@link ArticlePost}.
+     * <p>
+     * Items are deposited concurrently on the executor set by {@link #setDepositExecutor(ExecutorService)}, so one
+     * item's article is being created while others are uploading. All items share the {@link ParallelUploader}'s
+     * pool, so throughput is bounded by the pool sizes rather than the number of items.
+     *
+     * @param publishAtEnd if <code>true</code>, items whose metadata requests publishing are published together
+     *                     once every item has been uploaded, rather than each as soon as it's uploaded
+     * @return results in the same order as {@code items}. If the calling thread is interrupted, items not yet
+     * deposited are cancelled.
+     */
+    public List<RepositoryOperationResult> submitDeposits(List<DepositItem> items, boolean publishAtEnd) {
+        log.info("Depositing batch of {} files", items.size());
+        // every item is deposited, and published, with the same client
+        ClientBinding bound = client;
+        CategorySet categorySet = getCategorySet();
+        LicenseSet licenseSet = getLicenseSet();
+        Map<SubmissionMetadata, Map<Optional<ArchiveUploadStrategy>, ArticlePost>> articles = new IdentityHashMap<>();
+        List<BatchEntry> entries = new ArrayList<>();
+        for (DepositItem item : items) {
+            ArticlePost toPost = articles.computeIfAbsent(item.getMetadata(), md -> new HashMap<>())
+                    .computeIfAbsent(archiveUploadStrategy(item.getFile()),
+                            strategy -> toArticlePost(item.getMetadata(), strategy, categorySet, licenseSet));
+            boolean publishNow = item.getMetadata().isPublish() && !publishAtEnd;
+            BatchEntry entry = new BatchEntry(item);
+            entry.deposit = depositAsync(bound, item.getFile(), () -> toPost, publishNow,
+                    DepositProgressListener.NONE, entry::uploaded);
+            entries.add(entry);
+        }
+        List<RepositoryOperationResult> results = entries.stream().map(e -> awaitDeposit(e.deposit))
+                .collect(Collectors.toList());
+        if (publishAtEnd) {
+            publishAll(bound, entries, results);
+        }
+        return results;
+    }
+
+    private void publishAll(ClientBinding bound, List<BatchEntry> entries, List<RepositoryOperationResult> results) {
+        Map<Integer, Future<RepositoryOperationResult>> publishing = new LinkedHashMap<>();
+        PublishQueue queue = publishQueue;
+        for (int i = 0; i < entries.size(); i++) {
+            BatchEntry entry = entries.get(i);
+            // the article is only set once every file has been uploaded
+            if (!entry.item.getMetadata().isPublish() || entry.article == null) {
+                continue;
+            }
+            if (queue != null) {
+                results.set(i, enqueuePublish(bound, queue, entry.article, entry.link));
+            } else {
+                publishing.put(i, depositExecutor.submit(() -> {
+                    PhaseTimer timer = new PhaseTimer(metrics, entry.item.getFile().getName());
+                    timer.start(DepositPhase.PUBLISH);
+                    try {
+                        return publish(bound.getFigshare(), entry.article, entry.link, timer);
+                    } catch (RestClientException e) {
+                        timer.end(false);
+                        log.error("Couldn't publish article {}: {}", entry.article.getId(), e.getMessage());
+                        return new RepositoryOperationResult(true,
+                                String.format("%s Publishing failed:  %s", DEPOSIT_SUCCEEDED, e.getMessage()), entry.link);
+                    }
+                }));
+            }
+        }
+        log.info("Publishing {} articles", publishing.size());
+        publishing.forEach((i, published) -> results.set(i, awaitDeposit(published)));
+    }
+
+    private RepositoryOperationResult awaitDeposit(Future<RepositoryOperationResult> deposit) {
+        try {
+            return deposit.get();
+        } catch (ExecutionException e) {
+            log.error("Deposit failed: {}", e.getCause().getMessage());
+            return new RepositoryOperationResult(false, "Submission failed - " + e.getCause().getMessage(), null);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            deposit.cancel(true);
+            return new RepositoryOperationResult(false, "Submission cancelled", null);
+        }
+    }
+
+    private static class BatchEntry {
+        final DepositItem item;
+        Future<RepositoryOperationResult> deposit;
+        volatile Location article;
+        volatile URL link;
+
+        BatchEntry(DepositItem item) {
+            this.item = item;
+        }
+
+        void uploaded(Location article, URL link) {
+            this.link = link;
+            this.article = article;
+        }
+    }
+
+    ArticlePost toArticlePost(File toDeposit, SubmissionMetadata metadata) {
+        return toArticlePost(metadata, archiveUploadStrategy(toDeposit), getCategorySet(), getLicenseSet());
+    }
+
+    private ArticlePost toArticlePost(SubmissionMetadata metadata, Optional<ArchiveUploadStrategy> strategy,
+                                      CategorySet categories, LicenseSet licenses) {
         ArticlePostBuilder articleBuilder = ArticlePost.builder();
         articleBuilder.title(metadata.getTitle()).description(metadata.getDescription());
         for (IDepositor author : metadata.getAuthors()) {
-            Author figAuthor = new Author(author.getUniqueName(), null);
-            log.info("Submitting author details: {}", figAuthor);
-            articleBuilder.author(figAuthor);
+            articleBuilder.author(new Author(author.getUniqueName(), null));
+        }
+        Set<Long> categoryIds = new LinkedHashSet<>();
+        for (String subject : metadata.getSubjects()) {
+            categories.findByTitle(subject).ifPresent(cat -> categoryIds.add(cat.getId()));
         }
-        List<FigshareCategory> subjects = getFigshareCategories();
-        FigshareCategory matching = FigshareCategory.SOFTWARE_TESTING;
-        if (!metadata.getSubjects().isEmpty()) {
-            matching = subjects.stream().filter(cat -> cat.getTitle().equals(metadata.getSubjects().get(0))).findFirst()
-                    .orElse(FigshareCategory.SOFTWARE_TESTING);
+        if (categoryIds.isEmpty()) {
+            categoryIds.add(FigshareCategory.SOFTWARE_TESTING.getId());
         }
-        articleBuilder.category(matching.getId());
+        categoryIds.forEach(articleBuilder::category);
         // tag required for publishing to work, if needed.
-        articleBuilder.tags(Arrays.asList("RSpace"));
-        List<FigshareLicense> allLicenses = getFigshareLicenses();
-        Optional<FigshareLicense> matchingLicense = allLicenses.stream()
-                .filter(figshareLicense -> metadata.getLicense().isPresent() && figshareLicense.getUrl().equals(metadata.getLicense().get())).findFirst();
+        List<String> tags = new ArrayList<>();
+        tags.add("RSpace");
+        strategy.ifPresent(s -> tags.add(s.getTag()));
+        articleBuilder.tags(tags);
+        Optional<FigshareLicense> matchingLicense = metadata.getLicense().flatMap(licenses::findByUrl);
         FigshareLicense toSet = matchingLicense.orElse(getDefaultLicense());
         articleBuilder.license(toSet.getValue());
-        ArticlePost toPost = articleBuilder.build();
-
-        return doPost(toDeposit, toPost, metadata);
+        return articleBuilder.build();
     }
 
     private FigshareLicense getDefaultLicense() {
@@ -119,34 +599,367 @@ public class FigshareRSpaceRepository implements IRepository, RepositoryConfigur
     }
 
     RepositoryOperationResult doPost(File toDeposit, ArticlePost toPost, SubmissionMetadata metadata) {
+        return doPost(toDeposit, toPost, metadata, DepositProgressListener.NONE);
+    }
+
+    RepositoryOperationResult doPost(File toDeposit, ArticlePost toPost, SubmissionMetadata metadata,
+                                     DepositProgressListener listener) {
+        return doPost(client, toDeposit, toPost, metadata.isPublish(), listener, (article, link) -> { });
+    }
+
+    private RepositoryOperationResult doPost(ClientBinding bound, File toDeposit, ArticlePost toPost, boolean publish,
+                                             DepositProgressListener listener,
+                                             BiConsumer<Location, URL> onUploaded) {
+        ProgressTracker progress = new ProgressTracker(listener);
+        return deposit(bound, admit(toDeposit, progress), () -> toPost, publish, progress, onUploaded);
+    }
+
+    /**
+     * Deposits on the deposit executor. With a {@link DepositScheduler}, the deposit is planned and waits to be
+     * admitted on a thread of its own first, so deposits waiting their turn don't hold executor threads that
+     * admitted deposits could be using. Cancelling the returned future interrupts whichever step is running.
+     */
+    private CompletableFuture<RepositoryOperationResult> depositAsync(ClientBinding bound, File toDeposit,
+                                                                      Supplier<ArticlePost> toPost, boolean publish,
+                                                                      DepositProgressListener listener,
+                                                                      BiConsumer<Location, URL> onUploaded) {
+        ProgressTracker progress = new ProgressTracker(listener);
+        ExecutorService executor = depositExecutor;
+        CompletableFuture<RepositoryOperationResult> result = new CompletableFuture<>();
+        AtomicReference<Future<?>> running = new AtomicReference<>();
+        // admitted, but not yet taken by the step that deposits it
+        AtomicReference<Admission> pending = new AtomicReference<>();
+        if (depositScheduler == null) {
+            running.set(executor.submit(() -> complete(result,
+                    () -> deposit(bound, admit(toDeposit, progress), toPost, publish, progress, onUploaded))));
+        } else {
+            running.set(ADMISSION_EXECUTOR.submit(() -> {
+                try {
+                    pending.set(admit(toDeposit, progress));
+                    running.set(executor.submit(() -> {
+                        Admission admission = pending.getAndSet(null);
+                        if (admission != null) {
+                            complete(result, () -> deposit(bound, admission, toPost, publish, progress, onUploaded));
+                        }
+                    }));
+                } catch (Throwable e) {
+                    close(pending.getAndSet(null));
+                    result.completeExceptionally(e);
+                    if (e instanceof Error) {
+                        throw (Error) e;
+                    }
+                }
+            }));
+        }
+        result.whenComplete((r, e) -> {
+            if (result.isCancelled()) {
+                running.get().cancel(true);
+                close(pending.getAndSet(null));
+            }
+        });
+        return result;
+    }
+
+    // anything thrown completes the result too, including errors, which would otherwise leave it incomplete forever
+    private static void complete(CompletableFuture<RepositoryOperationResult> result,
+                                 Supplier<RepositoryOperationResult> deposit) {
         try {
-            log.info("Article to post: {}", toPost);
-            Location articleId = figshare.createArticle(toPost);
-            URL link = getLinkToArticle(articleId);
-            uploadExport(toDeposit, articleId);
-            String feedbackMsg = "Deposit succeeded.";
-            log.info("New article will be at URL {}", link);
-
-            if (metadata.isPublish()) {
-                FigshareResponse<Location> published = figshare.publishArticle(articleId.getId());
-                String publishingFeedback;
-                if (published.hasError()) {
-                    publishingFeedback = String.format(" Publishing failed:  %s", published.getError().getMessage());
-                } else {
-                    publishingFeedback = "Publishing succeeded";
-                    link = published.getData().getLocation();
+            result.complete(deposit.get());
+        } catch (Throwable e) {
+            result.completeExceptionally(e);
+            if (e instanceof Error) {
+                throw (Error) e;
+            }
+        }
+    }
+
+    private static void close(Admission admission) {
+        if (admission != null) {
+            admission.close();
+        }
+    }
+
+    /**
+     * A planned deposit that may start uploading, holding its plan and its permit from the
+     * {@link DepositScheduler}, if there is one, until closed; or a deposit rejected before it started.
+     */
+    private static final class Admission implements Closeable {
+        final File toDeposit;
+        final DepositPlan plan;
+        final DepositScheduler.Permit permit;
+        final RepositoryOperationResult rejection;
+
+        private Admission(File toDeposit, DepositPlan plan, DepositScheduler.Permit permit,
+                          RepositoryOperationResult rejection) {
+            this.toDeposit = toDeposit;
+            this.plan = plan;
+            this.permit = permit;
+            this.rejection = rejection;
+        }
+
+        static Admission admitted(File toDeposit, DepositPlan plan, DepositScheduler.Permit permit) {
+            return new Admission(toDeposit, plan, permit, null);
+        }
+
+        static Admission rejected(File toDeposit, RepositoryOperationResult rejection) {
+            return new Admission(toDeposit, null, null, rejection);
+        }
+
+        boolean isRejected() {
+            return rejection != null;
+        }
+
+        @Override
+        public void close() {
+            if (plan != null) {
+                plan.close();
+            }
+            if (permit != null) {
+                permit.close();
+            }
+        }
+    }
+
+    /**
+     * Plans a deposit and, with a {@link DepositScheduler}, waits until it may start uploading. A deposit over
+     * the size limit, or that fails to be planned or admitted, is rejected.
+     */
+    private Admission admit(File toDeposit, ProgressTracker progress) {
+        String deposit = toDeposit.getName();
+        try {
+            DepositPlan plan = planDeposit(toDeposit);
+            boolean admitted = false;
+            try {
+                if (plan.getTotalBytes() > maxDepositBytes) {
+                    log.warn("Rejecting deposit {} of {} bytes in {} files, over the limit of {} bytes", deposit,
+                            plan.getTotalBytes(), plan.getFileCount(), maxDepositBytes);
+                    return Admission.rejected(toDeposit, new RepositoryOperationResult(false, String.format(
+                            "Submission rejected - %d bytes to upload exceeds the limit of %d bytes",
+                            plan.getTotalBytes(), maxDepositBytes), null));
+                }
+                DepositScheduler.Permit permit = null;
+                DepositScheduler scheduler = depositScheduler;
+                if (scheduler != null) {
+                    progress.phase(DepositPhase.ADMIT);
+                    permit = timed(DepositPhase.ADMIT, deposit, timer -> {
+                        timer.count(plan.getFileCount(), plan.getTotalBytes());
+                        return scheduler.admit(plan.getTotalBytes());
+                    });
+                }
+                admitted = true;
+                return Admission.admitted(toDeposit, plan, permit);
+            } finally {
+                // until admitted, the plan is closed on any way out
+                if (!admitted) {
+                    plan.close();
                 }
-                feedbackMsg = feedbackMsg + publishingFeedback;
             }
-            return new RepositoryOperationResult(true, feedbackMsg, link);
-        } catch (RestClientException e) {
+        } catch (RestClientException | IOException e) {
+            return Admission.rejected(toDeposit, submissionFailed(e));
+        }
+    }
+
+    /**
+     * Runs an admitted deposit as a pipeline of stages, closing the admission:
+     * <ul>
+     * <li>files uploaded by an earlier attempt are found in the journal while the article is created
+     * <li>the link to the article is resolved while files are uploaded
+     * <li>the article is published once everything is uploaded
+     * </ul>
+     * Failing to resolve a link doesn't fail the deposit; failure of any other stage does.
+     *
+     * @param bound      the client to deposit with, and the account its uploads are recorded against
+     * @param onUploaded called with the article and its link once every file has been uploaded to it
+     */
+    private RepositoryOperationResult deposit(ClientBinding bound, Admission admission, Supplier<ArticlePost> post,
+                                              boolean publish, ProgressTracker progress,
+                                              BiConsumer<Location, URL> onUploaded) {
+        if (admission.isRejected()) {
+            return admission.rejection;
+        }
+        File toDeposit = admission.toDeposit;
+        DepositPlan plan = admission.plan;
+        String deposit = toDeposit.getName();
+        CompletableFuture<ScannedExport> scan = null;
+        try {
+            ArticlePost toPost = post.get();
+            if (DepositEventLog.isDetailSampled(log)) {
+                log.debug("Article to post for {}: {}", deposit, toPost);
+            }
+            Figshare figshare = bound.getFigshare();
+            DepositJournal journal = depositJournal;
+            ContentHashIndex index = contentHashIndex;
+            // only needed to find earlier attempts, which are only recorded if a journal or index is set
+            String articleKey = journal.isEnabled() || index.isEnabled() ? ArticleKey.of(toPost) : null;
+            DepositJournal.Checkpoint checkpoint = journal.open(toDeposit, articleKey, bound.getToken());
+            ContentHashIndex.Entry hashes = index.open(articleKey, bound.getToken());
+            scan = inBackground(DepositPhase.SCAN, deposit, timer -> {
+                ScannedExport scanned = scanExport(plan, checkpoint);
+                timer.count(scanned.getToUpload().size(), scanned.getBytesToUpload());
+                return scanned;
+            });
+            progress.phase(DepositPhase.CREATE);
+            Location articleId = timed(DepositPhase.CREATE, deposit,
+                    timer -> findOrCreateArticle(figshare, toPost, checkpoint, hashes));
+            progress.phase(DepositPhase.LINK);
+            CompletableFuture<URL> link = inBackground(DepositPhase.LINK, deposit,
+                    timer -> getLinkToArticle(figshare, articleId))
+                    .exceptionally(e -> {
+                        log.warn("Couldn't get a link to article {}: {}", articleId.getId(), e.getMessage());
+                        return null;
+                    });
+            progress.phase(DepositPhase.UPLOAD);
+            UploadReport uploads = upload(figshare, await(scan), articleId, deposit,
+                    UploadListener.all(checkpoint, hashes, progress));
+            URL articleLink = await(link);
+            if (!uploads.isComplete()) {
+                log.error("Upload to article {} incomplete - {}", articleId.getId(), uploads.getFailureSummary());
+                return new RepositoryOperationResult(false, "Submission incomplete - " + uploads.getFailureSummary(),
+                        articleLink);
+            }
+            onUploaded.accept(articleId, articleLink);
+            log.debug("New article will be at URL {}", articleLink);
+
+            RepositoryOperationResult result = new RepositoryOperationResult(true, DEPOSIT_SUCCEEDED, articleLink);
+            PublishQueue queue = publishQueue;
+            if (publish && queue != null) {
+                result = enqueuePublish(bound, queue, articleId, articleLink);
+            } else if (publish) {
+                progress.phase(DepositPhase.PUBLISH);
+                PhaseTimer timer = new PhaseTimer(metrics, deposit);
+                timer.start(DepositPhase.PUBLISH);
+                result = publish(figshare, articleId, articleLink, timer);
+            }
+            checkpoint.complete();
+            return result;
+        } catch (RestClientException | IOException e) {
+            return submissionFailed(e);
+        } finally {
+            if (scan != null) {
+                // the scan stage owns the plan, and closes the archive once scanning finishes, even if the deposit
+                // failed before using it
+                scan.thenAccept(ScannedExport::close);
+            } else {
+                plan.close();
+            }
+            if (admission.permit != null) {
+                admission.permit.close();
+            }
+        }
+    }
+
+    private static RepositoryOperationResult submissionFailed(Exception e) {
+        if (e instanceof RestClientException) {
             log.error("Couldn't perform  Figshare API operation : {}", e.getMessage());
-            return new RepositoryOperationResult(false, "Submission failed - " + e.getMessage(), null);
-        } catch (IOException e) {
+        } else {
             log.error("IO error during zip archive traversal. Figshare upload may not be complete :{}", e.getMessage());
-            return new RepositoryOperationResult(false, "Submission failed - " + e.getMessage(), null);
         }
+        return new RepositoryOperationResult(false, "Submission failed - " + e.getMessage(), null);
+    }
+
+    /**
+     * A stage of a deposit, which can record the files it handles with its timer
+     */
+    @FunctionalInterface
+    private interface Stage<T> {
+        T run(PhaseTimer timer) throws IOException;
+    }
+
+    private <T> T timed(String phase, String deposit, Stage<T> stage) throws IOException {
+        PhaseTimer timer = new PhaseTimer(metrics, deposit);
+        timer.start(phase);
+        boolean succeeded = false;
+        try {
+            T result = stage.run(timer);
+            succeeded = true;
+            return result;
+        } finally {
+            timer.end(succeeded);
+        }
+    }
 
+    private <T> CompletableFuture<T> inBackground(String phase, String deposit, Stage<T> stage) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return timed(phase, deposit, stage);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, STAGE_EXECUTOR);
+    }
+
+    /**
+     * Waits for a stage run by {@link #inBackground}, rethrowing its failure.
+     */
+    private static <T> T await(CompletableFuture<T> stage) throws IOException {
+        try {
+            return stage.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for deposit to complete");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) cause).getCause();
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    private Location findOrCreateArticle(Figshare figshare, ArticlePost toPost,
+                                         DepositJournal.Checkpoint checkpoint, ContentHashIndex.Entry hashes)
+            throws IOException {
+        Optional<Location> resumed = checkpoint.getArticle();
+        if (resumed.isPresent()) {
+            log.info("Resuming earlier deposit to article {}", resumed.get().getId());
+            return resumed.get();
+        }
+        Optional<Location> earlierVersion = hashes.getArticle();
+        if (earlierVersion.isPresent()) {
+            log.info("Depositing new and changed files to earlier article {}", earlierVersion.get().getId());
+            checkpoint.recordArticle(earlierVersion.get());
+            return earlierVersion.get();
+        }
+        Location created = figshare.createArticle(toPost);
+        checkpoint.recordArticle(created);
+        hashes.recordArticle(created);
+        return created;
+    }
+
+    private RepositoryOperationResult enqueuePublish(ClientBinding bound, PublishQueue queue, Location articleId,
+                                                     URL link) {
+        try {
+            String account = bound.getToken() == null ? null : FigshareClientRegistry.accountKey(bound.getToken());
+            queue.enqueue(bound.getFigshare(), account, articleId, link);
+            return new RepositoryOperationResult(true, DEPOSIT_SUCCEEDED + " Publishing queued", link);
+        } catch (IOException e) {
+            log.error("Couldn't queue article {} for publishing: {}", articleId.getId(), e.getMessage());
+            return new RepositoryOperationResult(true,
+                    String.format("%s Publishing failed:  %s", DEPOSIT_SUCCEEDED, e.getMessage()), link);
+        }
+    }
+
+    private RepositoryOperationResult publish(Figshare figshare, Location articleId, URL link, PhaseTimer timer) {
+        FigshareResponse<Location> published;
+        try {
+            published = figshare.publishArticle(articleId.getId());
+        } catch (RestClientException e) {
+            timer.end(false);
+            throw e;
+        }
+        timer.end(!published.hasError());
+        String publishingFeedback;
+        if (published.hasError()) {
+            publishingFeedback = String.format(" Publishing failed:  %s", published.getError().getMessage());
+        } else {
+            publishingFeedback = "Publishing succeeded";
+            link = published.getData().getLocation();
+        }
+        return new RepositoryOperationResult(true, DEPOSIT_SUCCEEDED + publishingFeedback, link);
     }
 
     // this attempts to fix rspac-2566.
@@ -157,6 +970,10 @@ public class FigshareRSpaceRepository implements IRepository, RepositoryConfigur
     // 2 privateUrl - a guess that this is more likely to be viewable than public URL if the item hasn't been published
     // 3 public URL
     URL getLinkToArticle(Location articleId) {
+        return getLinkToArticle(client.getFigshare(), articleId);
+    }
+
+    private URL getLinkToArticle(Figshare figshare, Location articleId) {
         URL link;
         try {
             PrivateArticleLink privateLink = figshare.createPrivateArticleLink(articleId.getId());
@@ -177,29 +994,126 @@ public class FigshareRSpaceRepository implements IRepository, RepositoryConfigur
         return link;
     }
 
-    private void uploadExport(File toDeposit, Location articleId) throws IOException {
-        if ("zip".equals(getExtension(toDeposit.getName()))) {
-            log.info("Uploading main zip as single zip archive...");
-            figshare.uploadFile(articleId.getId(), toDeposit);
-            archiveIterator.processZip(toDeposit, file -> figshare.uploadFile(articleId.getId(), file),
-                    entry -> !entry.getName().contains(ARCHIVE_RESOURCE_FOLDER));
+    UploadReport uploadExport(File toDeposit, Location articleId, DepositJournal.Checkpoint checkpoint)
+            throws IOException {
+        try (ScannedExport scanned = scanExport(planDeposit(toDeposit), checkpoint)) {
+            return uploadScanned(client.getFigshare(), scanned, articleId, checkpoint);
+        }
+    }
 
-        } else {
-            figshare.uploadFile(articleId.getId(), toDeposit);
+    /**
+     * Lists the files that depositing {@code toDeposit} would upload, without uploading anything. Archive entries
+     * are chosen by the {@link #setEntryFilter(ArchiveEntryFilter) entry filter}, using only the archive's
+     * central directory. Each entry is spooled to a temporary file only while it's being uploaded, so the
+     * archive is never extracted in full. The returned plan must be closed.
+     */
+    public DepositPlan planDeposit(File toDeposit) throws IOException {
+        List<UploadSource> sources = new ArrayList<>();
+        Optional<ArchiveUploadStrategy> archiveStrategy = archiveUploadStrategy(toDeposit);
+        if (archiveStrategy.isEmpty() || archiveStrategy.get().includesArchive()) {
+            // clients created by configure and forUser upload it from mapped parts, so it's never copied to the heap
+            sources.add(UploadSource.ofFile(toDeposit));
+        }
+        if (archiveStrategy.isEmpty() || !archiveStrategy.get().includesEntries()) {
+            return new DepositPlan(sources, 0, null);
+        }
+        log.info("Uploading zip contents as individual files ({})...", archiveStrategy.get());
+        ZipFile zip = new ZipFile(toDeposit);
+        try {
+            ArchiveEntryFilter filter = entryFilter;
+            int excluded = 0;
+            Enumeration<? extends ZipEntry> entries = zip.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                if (entry.isDirectory()) {
+                    continue;
+                }
+                if (filter.test(entry)) {
+                    sources.add(UploadSource.ofZipEntry(zip, entry));
+                } else {
+                    excluded++;
+                }
+            }
+            return new DepositPlan(sources, excluded, zip);
+        } catch (RuntimeException e) {
+            zip.close();
+            throw e;
         }
     }
 
+    /**
+     * Finds the files of a plan still to be uploaded, omitting those uploaded by an earlier attempt at the
+     * same deposit. Only cheap fingerprints are checked; files already in the article are found as they're
+     * uploaded, by the {@link ContentHashIndex}. Closes the plan on failure.
+     */
+    ScannedExport scanExport(DepositPlan plan, DepositJournal.Checkpoint checkpoint) {
+        ScannedExport scanned = new ScannedExport(plan);
+        try {
+            for (UploadSource source : plan.getSources()) {
+                if (checkpoint.isUploaded(source)) {
+                    scanned.addAlreadyUploaded();
+                } else {
+                    scanned.add(source);
+                }
+            }
+        } catch (RuntimeException e) {
+            scanned.close();
+            throw e;
+        }
+        return scanned;
+    }
+
+    /**
+     * @return the strategy for uploading {@code toDeposit}, or empty if it's not an archive
+     */
+    Optional<ArchiveUploadStrategy> archiveUploadStrategy(File toDeposit) {
+        if (!"zip".equals(getExtension(toDeposit.getName()))) {
+            return Optional.empty();
+        }
+        return Optional.of(archiveUploadStrategy.resolve(toDeposit.length()));
+    }
+
+    private UploadReport upload(Figshare figshare, ScannedExport scanned, Location articleId, String deposit,
+                                UploadListener listener) throws IOException {
+        PhaseTimer timer = new PhaseTimer(metrics, deposit);
+        timer.start(DepositPhase.UPLOAD);
+        boolean complete = false;
+        try {
+            UploadReport uploads = uploadScanned(figshare, scanned, articleId, listener);
+            timer.count(uploads.getOutcomes().size() - uploads.getFailures().size() - uploads.getFilesUnchanged(),
+                    uploads.getBytesUploaded());
+            metrics.recordDepositBytes(uploads.getBytesUploaded());
+            if (uploads.getFilesUnchanged() > 0) {
+                log.info("Skipped {} unchanged files ({} bytes) already uploaded to article {}",
+                        uploads.getFilesUnchanged(), uploads.getBytesSaved(), articleId.getId());
+                metrics.recordDepositBytesSaved(uploads.getBytesSaved());
+            }
+            complete = uploads.isComplete();
+            return uploads;
+        } finally {
+            timer.end(complete);
+        }
+    }
+
+    private UploadReport uploadScanned(Figshare figshare, ScannedExport scanned, Location articleId,
+                                       UploadListener listener) throws IOException {
+        if (scanned.getAlreadyUploaded() > 0) {
+            log.info("Skipping {} files already uploaded to article {}", scanned.getAlreadyUploaded(),
+                    articleId.getId());
+        }
+        return uploader.uploadSources(figshare, articleId, scanned.getToUpload(), listener);
+    }
 
     @Override
     public RepositoryOperationResult testConnection() {
         try {
-            if (figshare.test()) {
+            if (client.getFigshare().test()) {
                 return new RepositoryOperationResult(true, "Test connection OK!", null);
             } else {
                 return new RepositoryOperationResult(false, "Test connection failed - please check settings.", null);
             }
         } catch (RestClientException e) {
-            log.error("Couldn't perform test action {}" + e.getMessage());
+            log.error("Couldn't perform test action: {}", e.getMessage());
             return new RepositoryOperationResult(false, "Test connection failed - " + e.getMessage(), null);
         }
     }
@@ -211,39 +1125,54 @@ public class FigshareRSpaceRepository implements IRepository, RepositoryConfigur
 
     @Override
     public List<Subject> getSubjects() {
-        if (subjects.isEmpty()) {
-            List<FigshareCategory> categories = getFigshareCategories();
-            categories.forEach(c -> subjects.add(new Subject(c.getTitle())));
-        }
-        subjects.sort(comparing(Subject::getName));
-        return Collections.unmodifiableList(subjects);
+        List<Subject> configured = subjects;
+        return configured.isEmpty() ? getCategorySet().getSubjects() : configured;
     }
 
     @Override
     public LicenseConfigInfo getLicenseConfigInfo() {
-        if (licenses.isEmpty()) {
-            List<FigshareLicense> figshareLicenses = getFigshareLicenses();
-            figshareLicenses.forEach(license -> licenses.add(new License(new LicenseDef(license.getUrl(), license.getName()), license.isDefaultLicense())));
-        }
-        licenses.sort(this::compareLicense);
-        return new LicenseConfigInfo(true, false, Collections.unmodifiableList(licenses));
+        return new LicenseConfigInfo(true, false, getLicenseSet().getRepositoryLicenses());
     }
 
+    /**
+     * @return categories sorted by title; either those set statically, or Figshare's public categories
+     */
     public List<FigshareCategory> getFigshareCategories() {
-        if (categories.isEmpty()) {
-            List<FigshareCategory> categories = figshare.getCategories(false);
-            setCategories(categories);
-        }
-        categories.sort(comparing(FigshareCategory::getTitle));
-        return Collections.unmodifiableList(categories);
+        return getCategorySet().getCategories();
     }
 
+    /**
+     * @return licenses sorted by name; either those set statically, or Figshare's public licenses
+     */
     public List<FigshareLicense> getFigshareLicenses() {
-        if (figshareLicenses.isEmpty()) {
-            setFigshareLicenses(figshare.getLicenses(false));
-        }
-        figshareLicenses.sort(this::compareFigshareLicense);
-        return figshareLicenses;
+        return getLicenseSet().getLicenses();
+    }
+
+    /**
+     * @return categories as a tree; either those set statically, or Figshare's public categories
+     */
+    public CategoryTree getCategoryTree() {
+        return getCategorySet().getTree();
+    }
+
+    /**
+     * Finds categories whose titles start with {@code prefix}, ignoring case, for subject autocompletion.
+     *
+     * @param offset index of the first match to return
+     * @param limit  maximum number of matches to return
+     */
+    public Page<FigshareCategory> searchCategories(String prefix, int offset, int limit) {
+        return getCategoryTree().search(prefix, offset, limit);
+    }
+
+    CategorySet getCategorySet() {
+        CategorySet configured = categories;
+        return configured.isEmpty() ? referenceData.getCategories(client.getFigshare()) : configured;
+    }
+
+    LicenseSet getLicenseSet() {
+        LicenseSet configured = figshareLicenses;
+        return configured.isEmpty() ? referenceData.getLicenses(client.getFigshare()) : configured;
     }
 
     public int compareLicense(License o1, License o2) {
@@ -254,23 +1183,31 @@ public class FigshareRSpaceRepository implements IRepository, RepositoryConfigur
         return o1.getName().compareTo(o2.getName());
     }
 
+    /**
+     * Overrides the subjects derived from Figshare categories. A sorted copy of {@code subjects} is kept.
+     *
+     * @param subjects
+     */
     public void setSubjects(List<Subject> subjects) {
-        this.subjects = subjects;
+        List<Subject> sorted = new ArrayList<>(subjects);
+        sorted.sort(comparing(Subject::getName));
+        this.subjects = Collections.unmodifiableList(sorted);
     }
 
     public void setFigshareLicenses(List<FigshareLicense> licenses) {
-        this.figshareLicenses = licenses;
+        this.figshareLicenses = LicenseSet.of(licenses);
     }
 
     public void setCategories(List<FigshareCategory> categories) {
-        this.categories = categories;
+        this.categories = CategorySet.of(categories);
     }
 
     public void setStaticFigshareConfig(String licensesJson, String categoriesJson) throws JsonProcessingException {
-        setCategories(objectMapper.readValue(categoriesJson, new TypeReference<>() {
-        }));
-        setFigshareLicenses(objectMapper.readValue(licensesJson, new TypeReference<>() {
-        }));
+        // parse both before setting either, so a failure leaves the existing configuration in place
+        List<FigshareCategory> parsedCategories = OBJECT_MAPPER.readValue(categoriesJson, CATEGORY_LIST);
+        List<FigshareLicense> parsedLicenses = OBJECT_MAPPER.readValue(licensesJson, LICENSE_LIST);
+        setCategories(parsedCategories);
+        setFigshareLicenses(parsedLicenses);
     }
 
 }
@@ -0,0 +1,120 @@
+package com.researchspace.figshare.rspaceadapter;
+
+import com.researchspace.figshare.api.Figshare;
+import com.researchspace.figshare.model.FigshareCategory;
+import com.researchspace.figshare.model.FigshareLicense;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Figshare categories and licenses, cached for the whole process so that they're fetched once
+ * rather than once per {@link FigshareRSpaceRepository}. Cached sets are immutable.
+ * <p>
+ * With a {@link #useSnapshot(ReferenceDataSnapshot) snapshot}, fetched data is also saved to disk and loaded
+ * at startup, so that the first deposit after a restart doesn't wait on Figshare.
+ */
+public class FigshareReferenceData {
+
+    public static final Duration DEFAULT_TTL = Duration.ofHours(12);
+
+    private static final FigshareReferenceData SHARED = new FigshareReferenceData(DEFAULT_TTL);
+
+    // we only request public categories and licenses, which are the same for every account
+    private static final String PUBLIC = "public";
+
+    private static final int MAX_ENTRIES = 16;
+
+    private final ReferenceDataCache<String, CategorySet> categories;
+
+    private final ReferenceDataCache<String, LicenseSet> licenses;
+
+    private ReferenceDataSnapshot snapshot;
+
+    // the most recently fetched or loaded data, saved together in the snapshot
+    private List<FigshareCategory> latestCategories;
+
+    private List<FigshareLicense> latestLicenses;
+
+    /**
+     * @return the process-wide instance, with a TTL of {@link #DEFAULT_TTL}
+     */
+    public static FigshareReferenceData shared() {
+        return SHARED;
+    }
+
+    /**
+     * @param ttl how long categories and licenses are cached for. They're refreshed in the background
+     *            when accessed after three quarters of this time.
+     */
+    public FigshareReferenceData(Duration ttl) {
+        this(new ReferenceDataCache<>(ttl, ttl.multipliedBy(3).dividedBy(4), MAX_ENTRIES),
+                new ReferenceDataCache<>(ttl, ttl.multipliedBy(3).dividedBy(4), MAX_ENTRIES));
+    }
+
+    FigshareReferenceData(ReferenceDataCache<String, CategorySet> categories,
+                          ReferenceDataCache<String, LicenseSet> licenses) {
+        this.categories = categories;
+        this.licenses = licenses;
+    }
+
+    /**
+     * Loads categories and licenses from {@code snapshot} if it holds any, to be served until they've been
+     * refreshed from Figshare in the background, and saves them to it whenever they're fetched.
+     */
+    public synchronized void useSnapshot(ReferenceDataSnapshot snapshot) {
+        snapshot.load().ifPresent(contents -> {
+            if (contents.getCategories() != null) {
+                latestCategories = contents.getCategories();
+                categories.prime(PUBLIC, CategorySet.of(latestCategories));
+            }
+            if (contents.getLicenses() != null) {
+                latestLicenses = contents.getLicenses();
+                licenses.prime(PUBLIC, LicenseSet.of(latestLicenses));
+            }
+        });
+        this.snapshot = snapshot;
+    }
+
+    /**
+     * @return public categories, fetched using {@code figshare} if not cached
+     */
+    public CategorySet getCategories(Figshare figshare) {
+        return categories.get(PUBLIC, () -> {
+            CategorySet fetched = CategorySet.of(figshare.getCategories(false));
+            saved(fetched.getCategories(), null);
+            return fetched;
+        });
+    }
+
+    /**
+     * @return public licenses, fetched using {@code figshare} if not cached
+     */
+    public LicenseSet getLicenses(Figshare figshare) {
+        return licenses.get(PUBLIC, () -> {
+            LicenseSet fetched = LicenseSet.of(figshare.getLicenses(false));
+            saved(null, fetched.getLicenses());
+            return fetched;
+        });
+    }
+
+    private synchronized void saved(List<FigshareCategory> fetchedCategories, List<FigshareLicense> fetchedLicenses) {
+        if (fetchedCategories != null) {
+            latestCategories = fetchedCategories;
+        }
+        if (fetchedLicenses != null) {
+            latestLicenses = fetchedLicenses;
+        }
+        if (snapshot != null) {
+            snapshot.save(latestCategories, latestLicenses);
+        }
+    }
+
+    public ReferenceDataCache<String, CategorySet> getCategoryCache() {
+        return categories;
+    }
+
+    public ReferenceDataCache<String, LicenseSet> getLicenseCache() {
+        return licenses;
+    }
+}
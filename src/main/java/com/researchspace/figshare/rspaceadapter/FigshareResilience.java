@@ -0,0 +1,72 @@
+package com.researchspace.figshare.rspaceadapter;
+
+import com.researchspace.figshare.api.Figshare;
+import lombok.Builder;
+import lombok.Value;
+
+import java.time.Duration;
+
+/**
+ * Settings for making calls to Figshare resilient to rate limiting and transient failures:
+ * <ul>
+ * <li>Calls are rate-limited by a token bucket. When Figshare responds with 429 Too Many Requests, the rate is
+ * halved and no calls are made until any Retry-After period has passed. The rate then recovers as calls succeed.
+ * <li>Calls rejected with 429 are retried. Idempotent calls, such as getting an article, are also retried after
+ * 5xx responses and I/O errors, with jittered exponential backoff. Uploading a file is never retried, as each
+ * attempt starts a new file on the article.
+ * <li>After {@code failureThreshold} consecutive 5xx responses or I/O errors, calls fail fast with
+ * {@link FigshareUnavailableException} for {@code openDuration}. A single trial call is then let through,
+ * and calls resume if it succeeds.
+ * </ul>
+ * State is held per decorated client, so repositories sharing a client share its rate limit.
+ */
+@Value
+@Builder
+public class FigshareResilience {
+
+    /**
+     * No rate limiting, retries or circuit breaking; the default.
+     */
+    public static final FigshareResilience NONE = FigshareResilience.builder().enabled(false).build();
+
+    /** if <code>false</code>, clients are used undecorated and the other settings are ignored */
+    @Builder.Default
+    boolean enabled = true;
+
+    @Builder.Default
+    double requestsPerSecond = 10;
+
+    /** number of calls that can be made at once after a quiet period */
+    @Builder.Default
+    int burst = 10;
+
+    /** attempts per call, including the first */
+    @Builder.Default
+    int maxAttempts = 4;
+
+    @Builder.Default
+    Duration initialBackoff = Duration.ofMillis(500);
+
+    @Builder.Default
+    Duration maxBackoff = Duration.ofSeconds(30);
+
+    @Builder.Default
+    int failureThreshold = 5;
+
+    @Builder.Default
+    Duration openDuration = Duration.ofSeconds(30);
+
+    /**
+     * @return settings recommended for production use
+     */
+    public static FigshareResilience defaults() {
+        return FigshareResilience.builder().build();
+    }
+
+    /**
+     * @return {@code figshare}, decorated to rate-limit, retry and fail fast as configured
+     */
+    public Figshare decorate(Figshare figshare) {
+        return enabled ? ResilientFigshare.wrap(figshare, this) : figshare;
+    }
+}
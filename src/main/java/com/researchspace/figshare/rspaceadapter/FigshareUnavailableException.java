@@ -0,0 +1,15 @@
+package com.researchspace.figshare.rspaceadapter;
+
+import org.springframework.web.client.RestClientException;
+
+/**
+ * Thrown without calling Figshare when recent calls show that Figshare is down.
+ *
+ * @see FigshareResilience
+ */
+public class FigshareUnavailableException extends RestClientException {
+
+    public FigshareUnavailableException(String msg) {
+        super(msg);
+    }
+}
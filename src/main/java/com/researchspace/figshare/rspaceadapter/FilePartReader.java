@@ -0,0 +1,82 @@
+package com.researchspace.figshare.rspaceadapter;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads a file in fixed-size parts, like those Figshare splits uploads into, as memory-mapped buffers.
+ * The content is read by the OS page cache rather than copied through heap arrays, so reading several
+ * multi-GB files at once doesn't put pressure on the heap.
+ * <p>
+ * Only one part need be mapped at a time; a part's mapping is released once its buffer is garbage collected.
+ * Not thread-safe.
+ * <p>
+ * The adapter uploads files through it, in the parts Figshare asks for (see {@link PartUploadFigshare}),
+ * and hashes deposit files with it.
+ */
+public class FilePartReader implements Closeable {
+
+    /**
+     * Default part size. Figshare tells the uploader the actual part sizes when an upload is initiated.
+     */
+    public static final int DEFAULT_PART_SIZE = 10 * 1024 * 1024;
+
+    private final FileChannel channel;
+    private final long size;
+    private final int partSize;
+
+    public FilePartReader(Path file, int partSize) throws IOException {
+        if (partSize < 1) {
+            throw new IllegalArgumentException("partSize must be positive but was " + partSize);
+        }
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        this.size = channel.size();
+        this.partSize = partSize;
+    }
+
+    public FilePartReader(Path file) throws IOException {
+        this(file, DEFAULT_PART_SIZE);
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public int getPartCount() {
+        return (int) ((size + partSize - 1) / partSize);
+    }
+
+    /**
+     * @param index zero-based part number
+     * @return a read-only buffer over the part's bytes; the last part may be shorter than the part size
+     */
+    public ByteBuffer readPart(int index) throws IOException {
+        if (index < 0 || index >= getPartCount()) {
+            throw new IndexOutOfBoundsException("Part " + index + " of " + getPartCount());
+        }
+        long offset = (long) index * partSize;
+        return read(offset, (int) Math.min(partSize, size - offset));
+    }
+
+    /**
+     * @return a read-only buffer over {@code length} bytes from {@code offset}, for parts whose boundaries are
+     * set by someone else
+     */
+    public ByteBuffer read(long offset, int length) throws IOException {
+        if (offset < 0 || length < 0 || offset + length > size) {
+            throw new IndexOutOfBoundsException(length + " bytes at " + offset + " of " + size);
+        }
+        MappedByteBuffer part = channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+        return part.asReadOnlyBuffer();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
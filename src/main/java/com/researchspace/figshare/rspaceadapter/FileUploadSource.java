@@ -0,0 +1,50 @@
+package com.researchspace.figshare.rspaceadapter;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+
+class FileUploadSource implements UploadSource {
+
+    private final File file;
+
+    FileUploadSource(File file) {
+        this.file = file;
+    }
+
+    @Override
+    public String getName() {
+        return file.getName();
+    }
+
+    @Override
+    public long getSize() {
+        return file.length();
+    }
+
+    @Override
+    public String getFingerprint() {
+        return file.length() + "-" + file.lastModified();
+    }
+
+    @Override
+    public InputStream openStream() throws IOException {
+        return Files.newInputStream(file.toPath());
+    }
+
+    @Override
+    public String computeMd5() throws IOException {
+        return Checksums.md5Hex(file.toPath());
+    }
+
+    @Override
+    public File acquire() {
+        return file;
+    }
+
+    @Override
+    public void release() {
+        // the file belongs to the caller
+    }
+}
@@ -0,0 +1,104 @@
+package com.researchspace.figshare.rspaceadapter;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link FigshareMetrics} that keeps simple summary statistics in memory; useful in tests,
+ * or for exposing through a status page where no metrics library is available.
+ */
+public class InMemoryFigshareMetrics implements FigshareMetrics {
+
+    /**
+     * Count, total and maximum of a series of recorded values: durations in nanoseconds, or sizes in bytes.
+     */
+    public static class Summary {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder total = new LongAdder();
+        private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+        void record(long value) {
+            count.increment();
+            total.add(value);
+            max.accumulate(value);
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        public long getTotal() {
+            return total.sum();
+        }
+
+        public long getMax() {
+            return max.get();
+        }
+
+        public double getMean() {
+            long n = getCount();
+            return n == 0 ? 0 : (double) getTotal() / n;
+        }
+    }
+
+    private static final Summary EMPTY = new Summary();
+
+    private final Map<String, Summary> calls = new ConcurrentHashMap<>();
+    private final Map<String, Summary> phases = new ConcurrentHashMap<>();
+    private final Summary fileUploadBytes = new Summary();
+    private final Summary depositBytes = new Summary();
+    private final Summary depositBytesSaved = new Summary();
+
+    @Override
+    public void recordCall(String operation, Outcome outcome, long durationNanos) {
+        calls.computeIfAbsent(operation + "." + outcome, k -> new Summary()).record(durationNanos);
+    }
+
+    @Override
+    public void recordFileUpload(long bytes) {
+        fileUploadBytes.record(bytes);
+    }
+
+    @Override
+    public void recordDepositPhase(String phase, boolean succeeded, long durationNanos) {
+        phases.computeIfAbsent(phase + "." + succeeded, k -> new Summary()).record(durationNanos);
+    }
+
+    @Override
+    public void recordDepositBytes(long bytes) {
+        depositBytes.record(bytes);
+    }
+
+    @Override
+    public void recordDepositBytesSaved(long bytes) {
+        depositBytesSaved.record(bytes);
+    }
+
+    /**
+     * @return call timings in nanoseconds for an operation and outcome
+     */
+    public Summary getCalls(String operation, Outcome outcome) {
+        return calls.getOrDefault(operation + "." + outcome, EMPTY);
+    }
+
+    /**
+     * @return phase timings in nanoseconds
+     */
+    public Summary getDepositPhase(String phase, boolean succeeded) {
+        return phases.getOrDefault(phase + "." + succeeded, EMPTY);
+    }
+
+    public Summary getFileUploadBytes() {
+        return fileUploadBytes;
+    }
+
+    public Summary getDepositBytes() {
+        return depositBytes;
+    }
+
+    public Summary getDepositBytesSaved() {
+        return depositBytesSaved;
+    }
+}
@@ -0,0 +1,80 @@
+package com.researchspace.figshare.rspaceadapter;
+
+import com.researchspace.figshare.api.Figshare;
+import com.researchspace.figshare.model.FigshareResponse;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+
+import java.io.File;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+/**
+ * Decorates a {@link Figshare} to time every API call, by operation and outcome, and record uploaded file sizes.
+ * <p>
+ * Implemented as a dynamic proxy so that every method of the client interface is covered, including any
+ * added by future versions of the Figshare client.
+ */
+final class InstrumentedFigshare implements InvocationHandler {
+
+    private final Figshare delegate;
+    private final FigshareMetrics metrics;
+
+    private InstrumentedFigshare(Figshare delegate, FigshareMetrics metrics) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+    }
+
+    static Figshare wrap(Figshare delegate, FigshareMetrics metrics) {
+        return (Figshare) Proxy.newProxyInstance(Figshare.class.getClassLoader(), new Class<?>[]{Figshare.class},
+                new InstrumentedFigshare(delegate, metrics));
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        if (method.getDeclaringClass() == Object.class) {
+            return method.invoke(delegate, args);
+        }
+        long start = System.nanoTime();
+        FigshareMetrics.Outcome outcome = FigshareMetrics.Outcome.ERROR;
+        try {
+            Object result = method.invoke(delegate, args);
+            outcome = outcomeOfResult(result);
+            if (outcome == FigshareMetrics.Outcome.SUCCESS && "uploadFile".equals(method.getName())) {
+                recordUploadSize(args);
+            }
+            return result;
+        } catch (InvocationTargetException e) {
+            outcome = outcomeOfFailure(e.getCause());
+            throw e.getCause();
+        } finally {
+            metrics.recordCall(method.getName(), outcome, System.nanoTime() - start);
+        }
+    }
+
+    private void recordUploadSize(Object[] args) {
+        for (Object arg : args) {
+            if (arg instanceof File) {
+                metrics.recordFileUpload(((File) arg).length());
+            }
+        }
+    }
+
+    private static FigshareMetrics.Outcome outcomeOfResult(Object result) {
+        if (result instanceof FigshareResponse && ((FigshareResponse<?>) result).hasError()) {
+            return FigshareMetrics.Outcome.ERROR;
+        }
+        return FigshareMetrics.Outcome.SUCCESS;
+    }
+
+    private static FigshareMetrics.Outcome outcomeOfFailure(Throwable failure) {
+        if (failure instanceof HttpClientErrorException) {
+            return FigshareMetrics.Outcome.CLIENT_ERROR;
+        } else if (failure instanceof HttpServerErrorException) {
+            return FigshareMetrics.Outcome.SERVER_ERROR;
+        }
+        return FigshareMetrics.Outcome.ERROR;
+    }
+}
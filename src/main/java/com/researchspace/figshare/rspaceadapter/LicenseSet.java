@@ -0,0 +1,87 @@
+package com.researchspace.figshare.rspaceadapter;
+
+import com.researchspace.figshare.model.FigshareLicense;
+import com.researchspace.repository.spi.License;
+import com.researchspace.repository.spi.LicenseDef;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+
+import static java.util.Comparator.comparing;
+
+/**
+ * Immutable set of Figshare licenses, sorted by name and indexed by URL for constant-time lookup.
+ * <p>
+ * URLs are compared as normalised strings rather than with {@link URL#equals(Object)}, which
+ * resolves host names and so can block on DNS. Instances are safe to share between threads.
+ */
+public final class LicenseSet {
+
+    private final List<FigshareLicense> licenses;
+
+    private final Map<String, FigshareLicense> byUrl;
+
+    private final List<License> repositoryLicenses;
+
+    private LicenseSet(List<FigshareLicense> licenses) {
+        List<FigshareLicense> sorted = new ArrayList<>(licenses);
+        sorted.sort(comparing(FigshareLicense::getName));
+        Map<String, FigshareLicense> index = new HashMap<>(sorted.size() * 2);
+        sorted.stream().filter(l -> l.getUrl() != null).forEach(l -> index.putIfAbsent(normalise(l.getUrl()), l));
+        this.licenses = Collections.unmodifiableList(sorted);
+        this.byUrl = index;
+        List<License> asRepositoryLicenses = new ArrayList<>(sorted.size());
+        sorted.forEach(l -> asRepositoryLicenses.add(new License(new LicenseDef(l.getUrl(), l.getName()), l.isDefaultLicense())));
+        this.repositoryLicenses = Collections.unmodifiableList(asRepositoryLicenses);
+    }
+
+    public static LicenseSet of(List<FigshareLicense> licenses) {
+        return new LicenseSet(licenses);
+    }
+
+    /**
+     * @return licenses sorted by name
+     */
+    public List<FigshareLicense> getLicenses() {
+        return licenses;
+    }
+
+    /**
+     * @return a repository license definition for each license, sorted by name
+     */
+    public List<License> getRepositoryLicenses() {
+        return repositoryLicenses;
+    }
+
+    public Optional<FigshareLicense> findByUrl(URL url) {
+        return url == null ? Optional.empty() : Optional.ofNullable(byUrl.get(normalise(url)));
+    }
+
+    public boolean isEmpty() {
+        return licenses.isEmpty();
+    }
+
+    /**
+     * Case-insensitive scheme and host, default port omitted, and trailing '/' on the path ignored.
+     */
+    static String normalise(URL url) {
+        StringBuilder normalised = new StringBuilder()
+                .append(url.getProtocol().toLowerCase(Locale.ROOT)).append("://")
+                .append(url.getHost().toLowerCase(Locale.ROOT));
+        if (url.getPort() != -1 && url.getPort() != url.getDefaultPort()) {
+            normalised.append(':').append(url.getPort());
+        }
+        String path = url.getPath();
+        normalised.append(path.endsWith("/") ? path.substring(0, path.length() - 1) : path);
+        if (url.getQuery() != null) {
+            normalised.append('?').append(url.getQuery());
+        }
+        return normalised.toString();
+    }
+}
@@ -0,0 +1,27 @@
+package com.researchspace.figshare.rspaceadapter;
+
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * A page of search results.
+ */
+@Value
+public class Page<T> {
+
+    List<T> items;
+
+    /** index of the first item in the full list of results */
+    int offset;
+
+    /** number of results in the full list */
+    int total;
+
+    /**
+     * @return <code>true</code> if there are results after this page
+     */
+    public boolean hasMore() {
+        return offset + items.size() < total;
+    }
+}
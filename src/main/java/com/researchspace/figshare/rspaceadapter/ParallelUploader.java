@@ -0,0 +1,166 @@
+package com.researchspace.figshare.rspaceadapter;
+
+import com.researchspace.figshare.api.Figshare;
+import com.researchspace.figshare.model.Location;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Collectors;
+
+/**
+ * Uploads files to Figshare articles using a bounded pool of worker threads.
+ * <p>
+ * A single instance can be shared between repository instances; the number of uploads
+ * in flight for any one article is additionally limited by {@code maxInFlightPerArticle}
+ * so that one large deposit cannot occupy the whole pool.
+ */
+@Slf4j
+public class ParallelUploader {
+
+    public static final int DEFAULT_POOL_SIZE = 8;
+
+    public static final int DEFAULT_MAX_IN_FLIGHT_PER_ARTICLE = 4;
+
+    private static final ParallelUploader SHARED = new ParallelUploader(DEFAULT_POOL_SIZE,
+            DEFAULT_MAX_IN_FLIGHT_PER_ARTICLE);
+
+    private final ExecutorService executor;
+
+    private final int maxInFlightPerArticle;
+
+    /**
+     * @return a process-wide uploader with default pool size and per-article limit
+     */
+    public static ParallelUploader shared() {
+        return SHARED;
+    }
+
+    public ParallelUploader(int poolSize, int maxInFlightPerArticle) {
+        this(Executors.newFixedThreadPool(poolSize, new DaemonThreadFactory("figshare-upload")), maxInFlightPerArticle);
+    }
+
+    /**
+     * @param executor              executor to run uploads on
+     * @param maxInFlightPerArticle maximum concurrent uploads to a single article, must be &gt; 0
+     */
+    public ParallelUploader(ExecutorService executor, int maxInFlightPerArticle) {
+        if (maxInFlightPerArticle < 1) {
+            throw new IllegalArgumentException("maxInFlightPerArticle must be at least 1 but was " + maxInFlightPerArticle);
+        }
+        this.executor = executor;
+        this.maxInFlightPerArticle = maxInFlightPerArticle;
+    }
+
+    /**
+     * Uploads files to an article, blocking until all uploads have completed.
+     *
+     * @see #uploadSources(Figshare, Location, List)
+     */
+    public UploadReport upload(Figshare figshare, Location article, List<File> files) throws InterruptedIOException {
+        return uploadSources(figshare, article, files.stream().map(UploadSource::ofFile).collect(Collectors.toList()));
+    }
+
+    /**
+     * Uploads content to an article, blocking until all uploads have completed.
+     *
+     * @see #uploadSources(Figshare, Location, List, UploadListener)
+     */
+    public UploadReport uploadSources(Figshare figshare, Location article, List<? extends UploadSource> sources)
+            throws InterruptedIOException {
+        return uploadSources(figshare, article, sources, UploadListener.NONE);
+    }
+
+    /**
+     * Uploads content to an article, blocking until all uploads have completed.
+     * Failure of one upload does not prevent the others from proceeding. Each source is acquired
+     * only once an upload slot is available for it.
+     * <p>
+     * If the calling thread is interrupted, uploads that have not yet started are cancelled.
+     *
+     * @param figshare the Figshare client to upload with
+     * @param article  the article to attach files to
+     * @param sources  content to upload
+     * @param listener notified of each successful upload, and asked whether each source is unchanged
+     * @return an {@link UploadReport} with one outcome per source, in the order of {@code sources}
+     * @throws InterruptedIOException if interrupted while waiting for uploads
+     */
+    public UploadReport uploadSources(Figshare figshare, Location article, List<? extends UploadSource> sources,
+                                      UploadListener listener) throws InterruptedIOException {
+        Semaphore inFlight = new Semaphore(maxInFlightPerArticle);
+        List<Future<UploadReport.Outcome>> pending = new ArrayList<>(sources.size());
+        listener.uploadsStarting(sources);
+        try {
+            for (UploadSource source : sources) {
+                inFlight.acquire();
+                try {
+                    pending.add(executor.submit(() -> {
+                        try {
+                            return uploadOne(figshare, article, source, listener);
+                        } finally {
+                            inFlight.release();
+                        }
+                    }));
+                } catch (RejectedExecutionException e) {
+                    inFlight.release();
+                    throw e;
+                }
+            }
+            List<UploadReport.Outcome> outcomes = new ArrayList<>(sources.size());
+            for (int i = 0; i < pending.size(); i++) {
+                outcomes.add(awaitOutcome(pending.get(i), sources.get(i)));
+            }
+            return new UploadReport(outcomes);
+        } catch (InterruptedException e) {
+            pending.forEach(f -> f.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while uploading files to article " + article.getId());
+        }
+    }
+
+    private UploadReport.Outcome uploadOne(Figshare figshare, Location article, UploadSource source,
+                                           UploadListener listener) {
+        try {
+            log.debug("Uploading {} to article {}", source.getName(), article.getId());
+            File file = source.acquire();
+            if (listener.isUnchanged(source)) {
+                log.debug("Not uploading unchanged {} to article {}", source.getName(), article.getId());
+                listener.unchanged(source);
+                return UploadReport.Outcome.unchanged(source.getName(), file.length());
+            }
+            figshare.uploadFile(article.getId(), file);
+            listener.uploaded(source);
+            return UploadReport.Outcome.success(source.getName(), file.length());
+        } catch (RuntimeException | IOException e) {
+            log.warn("Upload of {} to article {} failed: {}", source.getName(), article.getId(), e.getMessage());
+            return UploadReport.Outcome.failure(source.getName(), e.getMessage());
+        } finally {
+            source.release();
+        }
+    }
+
+    private UploadReport.Outcome awaitOutcome(Future<UploadReport.Outcome> future, UploadSource source)
+            throws InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            return UploadReport.Outcome.failure(source.getName(), e.getCause().getMessage());
+        }
+    }
+
+    /**
+     * Stops accepting new uploads; uploads already submitted will complete.
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
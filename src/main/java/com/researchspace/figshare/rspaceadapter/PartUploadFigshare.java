@@ -0,0 +1,149 @@
+package com.researchspace.figshare.rspaceadapter;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.researchspace.figshare.api.Figshare;
+import com.researchspace.figshare.model.FilePresenter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.StreamingHttpOutputMessage;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Decorates a {@link Figshare} client to upload files with Figshare's upload API itself, sending each part
+ * Figshare asks for from a memory-mapped {@link FilePartReader} buffer. Parts are written straight to the
+ * connection by a streaming request factory, so uploading several multi-GB files at once doesn't copy them
+ * through the heap. Every other call goes to the client.
+ * <p>
+ * An upload is initiated with the file's name, size and MD5; its parts are then uploaded one at a time, and
+ * the upload is completed. Thread-safe.
+ */
+@Slf4j
+final class PartUploadFigshare implements InvocationHandler {
+
+    static final String API_BASE = "https://api.figshare.com/v2";
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private final Figshare delegate;
+    private final String token;
+    private final RestTemplate restTemplate;
+    private final String apiBase;
+
+    private PartUploadFigshare(Figshare delegate, String token, ClientHttpRequestFactory requestFactory,
+                               String apiBase) {
+        this.delegate = delegate;
+        this.token = token;
+        this.restTemplate = new RestTemplate(requestFactory);
+        this.apiBase = apiBase;
+    }
+
+    /**
+     * @param token          the access token {@code delegate} was created with
+     * @param requestFactory a factory that streams request bodies, such as
+     *                       {@link FigshareHttpTransport#getStreamingRequestFactory()}
+     */
+    static Figshare wrap(Figshare delegate, String token, ClientHttpRequestFactory requestFactory) {
+        return wrap(delegate, token, requestFactory, API_BASE);
+    }
+
+    static Figshare wrap(Figshare delegate, String token, ClientHttpRequestFactory requestFactory, String apiBase) {
+        return (Figshare) Proxy.newProxyInstance(Figshare.class.getClassLoader(), new Class<?>[]{Figshare.class},
+                new PartUploadFigshare(delegate, token, requestFactory, apiBase));
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        if ("uploadFile".equals(method.getName()) && args.length == 2 && args[1] instanceof File) {
+            return uploadFile((Long) args[0], (File) args[1]);
+        }
+        try {
+            return method.invoke(delegate, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    FilePresenter uploadFile(Long articleId, File file) {
+        try (FilePartReader reader = new FilePartReader(file.toPath())) {
+            Map<String, Object> initiate = new LinkedHashMap<>();
+            initiate.put("name", file.getName());
+            initiate.put("size", reader.getSize());
+            initiate.put("md5", Checksums.md5Hex(file.toPath()));
+            String location = call(HttpMethod.POST, apiBase + "/account/articles/" + articleId + "/files",
+                    initiate).get("location").asText();
+            String uploadUrl = call(HttpMethod.GET, location, null).get("upload_url").asText();
+            JsonNode parts = call(HttpMethod.GET, uploadUrl, null).get("parts");
+            for (JsonNode part : parts) {
+                long start = part.get("startOffset").asLong();
+                long end = part.get("endOffset").asLong();
+                // offsets are inclusive
+                putPart(uploadUrl + "/" + part.get("partNo").asInt(), reader.read(start, (int) (end - start + 1)));
+            }
+            call(HttpMethod.POST, location, null);
+            log.debug("Uploaded {} to article {} in {} parts", file.getName(), articleId, parts.size());
+            return OBJECT_MAPPER.treeToValue(call(HttpMethod.GET, location, null), FilePresenter.class);
+        } catch (IOException e) {
+            throw new ResourceAccessException("I/O error uploading " + file.getName() + ": " + e.getMessage(), e);
+        }
+    }
+
+    private JsonNode call(HttpMethod method, String url, Object body) throws IOException {
+        HttpHeaders headers = authorized();
+        String json = null;
+        if (body != null) {
+            headers.setContentType(MediaType.APPLICATION_JSON);
+            json = OBJECT_MAPPER.writeValueAsString(body);
+        }
+        String response = restTemplate.exchange(url, method, new HttpEntity<>(json, headers), String.class).getBody();
+        return response == null || response.isEmpty() ? OBJECT_MAPPER.createObjectNode()
+                : OBJECT_MAPPER.readTree(response);
+    }
+
+    private void putPart(String url, ByteBuffer part) {
+        restTemplate.execute(url, HttpMethod.PUT, request -> {
+            request.getHeaders().putAll(authorized());
+            request.getHeaders().setContentType(MediaType.APPLICATION_OCTET_STREAM);
+            request.getHeaders().setContentLength(part.remaining());
+            if (request instanceof StreamingHttpOutputMessage) {
+                ((StreamingHttpOutputMessage) request).setBody(out -> write(part, out));
+            } else {
+                write(part, request.getBody());
+            }
+        }, null);
+    }
+
+    // the channel copies through a small fixed buffer, rather than the whole part
+    private static void write(ByteBuffer part, OutputStream out) throws IOException {
+        WritableByteChannel channel = Channels.newChannel(out);
+        while (part.hasRemaining()) {
+            channel.write(part);
+        }
+    }
+
+    private HttpHeaders authorized() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.AUTHORIZATION, "token " + token);
+        return headers;
+    }
+}
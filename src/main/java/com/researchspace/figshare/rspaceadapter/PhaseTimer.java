@@ -0,0 +1,54 @@
+package com.researchspace.figshare.rspaceadapter;
+
+/**
+ * Times consecutive phases of a single deposit, reporting each to {@link FigshareMetrics} and
+ * {@link DepositEventLog}. Not thread-safe.
+ */
+final class PhaseTimer {
+
+    private final FigshareMetrics metrics;
+    private final String deposit;
+    private String phase;
+    private long phaseStart;
+    private int files;
+    private long bytes;
+
+    /**
+     * @param deposit name of the deposited file, for deposit events
+     */
+    PhaseTimer(FigshareMetrics metrics, String deposit) {
+        this.metrics = metrics;
+        this.deposit = deposit;
+    }
+
+    /**
+     * Starts timing {@code phase}, ending the current phase, if any, as successful.
+     */
+    void start(String phase) {
+        end(true);
+        this.phase = phase;
+        this.phaseStart = System.nanoTime();
+        this.files = 0;
+        this.bytes = 0;
+    }
+
+    /**
+     * Records the number and size of files handled by the current phase.
+     */
+    void count(int files, long bytes) {
+        this.files = files;
+        this.bytes = bytes;
+    }
+
+    /**
+     * Ends the current phase, if any.
+     */
+    void end(boolean succeeded) {
+        if (phase != null) {
+            long duration = System.nanoTime() - phaseStart;
+            metrics.recordDepositPhase(phase, succeeded, duration);
+            DepositEventLog.phaseEnded(deposit, phase, succeeded, duration, files, bytes);
+            phase = null;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.researchspace.figshare.rspaceadapter;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tracks a single deposit's progress and reports it to a {@link DepositProgressListener}.
+ */
+final class ProgressTracker implements UploadListener {
+
+    private final DepositProgressListener listener;
+    private final AtomicInteger filesDone = new AtomicInteger();
+    private final AtomicLong bytesDone = new AtomicLong();
+    private volatile String phase;
+    private volatile int filesTotal;
+    private volatile long bytesTotal;
+
+    ProgressTracker(DepositProgressListener listener) {
+        this.listener = listener;
+    }
+
+    void phase(String phase) {
+        this.phase = phase;
+        report();
+    }
+
+    @Override
+    public void uploadsStarting(List<? extends UploadSource> sources) {
+        filesTotal += sources.size();
+        bytesTotal += sources.stream().mapToLong(s -> Math.max(s.getSize(), 0)).sum();
+        report();
+    }
+
+    @Override
+    public void uploaded(UploadSource source) {
+        filesDone.incrementAndGet();
+        bytesDone.addAndGet(Math.max(source.getSize(), 0));
+        report();
+    }
+
+    // skipped files count as done, so progress still reaches the total
+    @Override
+    public void unchanged(UploadSource source) {
+        uploaded(source);
+    }
+
+    private void report() {
+        if (listener != DepositProgressListener.NONE) {
+            listener.onProgress(new DepositProgress(phase, filesDone.get(), filesTotal, bytesDone.get(), bytesTotal));
+        }
+    }
+}
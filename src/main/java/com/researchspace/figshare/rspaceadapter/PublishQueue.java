@@ -0,0 +1,347 @@
+package com.researchspace.figshare.rspaceadapter;
+
+import com.researchspace.figshare.api.Figshare;
+import com.researchspace.figshare.model.FigshareResponse;
+import com.researchspace.figshare.model.Location;
+import lombok.Builder;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.stream.Collectors;
+
+/**
+ * Publishes articles in the background, so that deposits don't wait for publishing.
+ * <ul>
+ * <li>Queued articles are published in batches of up to {@code batchSize}, every {@code pollInterval}.
+ * <li>A failed publish is retried after an exponential backoff, up to {@code maxAttempts} attempts.
+ * <li>The queue is saved in a directory, one small file per article, so queued articles are published after
+ * a restart, and the status of recently published ones can still be looked up.
+ * </ul>
+ * Access tokens are never written to disk. Each article is saved with a key for its owner's account instead,
+ * and articles queued before a restart are published with the client the {@link #recoverWith(Function) recovery
+ * clients} find for that account. Thread-safe.
+ */
+@Slf4j
+public class PublishQueue implements Closeable {
+
+    @Value
+    @Builder
+    public static class Settings {
+        /** maximum number of articles published in each batch */
+        @Builder.Default
+        int batchSize = 20;
+
+        /** how often queued articles are published */
+        @Builder.Default
+        Duration pollInterval = Duration.ofSeconds(1);
+
+        /** attempts to publish an article before giving up on it */
+        @Builder.Default
+        int maxAttempts = 8;
+
+        /** delay before the first retry; doubled for each later one */
+        @Builder.Default
+        Duration initialBackoff = Duration.ofSeconds(5);
+
+        @Builder.Default
+        Duration maxBackoff = Duration.ofMinutes(10);
+
+        /** how long the status of a published or failed article is kept on disk */
+        @Builder.Default
+        Duration retention = Duration.ofDays(7);
+    }
+
+    private static final String SUFFIX = ".publish";
+
+    private static final class Entry {
+        final long articleId;
+        // the key of the owner's account, or null if the article was queued with a client not from a registry
+        final String account;
+        // the client of the user who queued the article, or null if queued before a restart
+        final Figshare client;
+        volatile PublishStatus.State state = PublishStatus.State.QUEUED;
+        volatile int failedAttempts;
+        volatile long nextAttemptMillis;
+        // when the state or attempts last changed
+        volatile long updatedMillis;
+        volatile String lastError;
+        volatile URL link;
+
+        Entry(long articleId, String account, Figshare client, URL link) {
+            this.articleId = articleId;
+            this.account = account;
+            this.client = client;
+            this.link = link;
+        }
+
+        PublishStatus toStatus() {
+            return new PublishStatus(articleId, state, failedAttempts, lastError, link);
+        }
+    }
+
+    private final Path directory;
+    private final Settings settings;
+    private final LongSupplier clockMillis;
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService worker;
+    private volatile Function<String, Figshare> recoveryClients = account -> null;
+
+    /**
+     * Loads any queue saved in {@code directory}, and starts publishing.
+     */
+    public PublishQueue(Path directory, Settings settings) throws IOException {
+        this(directory, settings, System::currentTimeMillis, true);
+    }
+
+    PublishQueue(Path directory, Settings settings, LongSupplier clockMillis, boolean startWorker)
+            throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.settings = settings;
+        this.clockMillis = clockMillis;
+        load();
+        if (startWorker) {
+            long interval = settings.getPollInterval().toMillis();
+            this.worker = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("figshare-publish"));
+            worker.scheduleWithFixedDelay(this::publishDueQuietly, interval, interval, TimeUnit.MILLISECONDS);
+        } else {
+            this.worker = null;
+        }
+    }
+
+    /**
+     * Set how the clients that publish articles queued before a restart are found. Given the account saved with
+     * an article, or <code>null</code> if it was queued without one, {@code recoveryClients} returns the owner's
+     * client, or <code>null</code> if none is available yet. Each time there's no client counts as a failed
+     * attempt, so an article whose owner doesn't return is given up on rather than staying queued.
+     */
+    public void recoverWith(Function<String, Figshare> recoveryClients) {
+        this.recoveryClients = recoveryClients;
+    }
+
+    /**
+     * Queues an article to be published by a client that isn't from a {@link FigshareClientRegistry}.
+     *
+     * @see #enqueue(Figshare, String, Location, URL)
+     */
+    public void enqueue(Figshare client, Location article, URL link) throws IOException {
+        enqueue(client, null, article, link);
+    }
+
+    /**
+     * Queues an article to be published. Queuing an article that's already queued or published has no effect;
+     * queuing one that failed starts its attempts again.
+     *
+     * @param client  the client of the article's owner
+     * @param account the owner's {@link FigshareClientRegistry#accountKey(String) account key}, saved so the
+     *                article can be published with the owner's client after a restart
+     * @param link    the article's link until it's published
+     */
+    public void enqueue(Figshare client, String account, Location article, URL link) throws IOException {
+        long articleId = article.getId();
+        Entry existing = entries.get(articleId);
+        if (existing != null && existing.state != PublishStatus.State.FAILED) {
+            return;
+        }
+        Entry entry = new Entry(articleId, account, client, link);
+        entry.nextAttemptMillis = clockMillis.getAsLong();
+        entry.updatedMillis = entry.nextAttemptMillis;
+        save(entry);
+        entries.put(articleId, entry);
+    }
+
+    public Optional<PublishStatus> getStatus(long articleId) {
+        return Optional.ofNullable(entries.get(articleId)).map(Entry::toStatus);
+    }
+
+    /**
+     * @return number of articles waiting to be published
+     */
+    public int getQueuedCount() {
+        return (int) entries.values().stream().filter(e -> e.state == PublishStatus.State.QUEUED).count();
+    }
+
+    /**
+     * Publishes up to a batch of articles that are due to be published or retried, and forgets articles
+     * published or failed longer ago than the retention period.
+     */
+    synchronized void publishDue() {
+        long now = clockMillis.getAsLong();
+        expire(now);
+        List<Entry> due = entries.values().stream()
+                .filter(e -> e.state == PublishStatus.State.QUEUED && e.nextAttemptMillis <= now)
+                .sorted(Comparator.comparingLong(e -> e.nextAttemptMillis))
+                .limit(settings.getBatchSize())
+                .collect(Collectors.toList());
+        for (Entry entry : due) {
+            publish(entry);
+        }
+    }
+
+    // an exception escaping a scheduled task would stop all further publishing
+    private void publishDueQuietly() {
+        try {
+            publishDue();
+        } catch (RuntimeException e) {
+            log.error("Publishing queued articles failed: {}", e.getMessage(), e);
+        }
+    }
+
+    private void publish(Entry entry) {
+        try {
+            Figshare client = entry.client != null ? entry.client : recoveryClients.apply(entry.account);
+            if (client == null) {
+                failed(entry, "No client for the account that queued the article before a restart");
+                return;
+            }
+            FigshareResponse<Location> published = client.publishArticle(entry.articleId);
+            if (published.hasError()) {
+                failed(entry, published.getError().getMessage());
+            } else {
+                entry.state = PublishStatus.State.PUBLISHED;
+                entry.link = published.getData().getLocation();
+                entry.updatedMillis = clockMillis.getAsLong();
+                log.info("Published article {}", entry.articleId);
+                saveQuietly(entry);
+            }
+        } catch (RuntimeException e) {
+            failed(entry, e.getMessage());
+        }
+    }
+
+    private void failed(Entry entry, String error) {
+        entry.failedAttempts++;
+        entry.lastError = error;
+        entry.updatedMillis = clockMillis.getAsLong();
+        if (entry.failedAttempts >= settings.getMaxAttempts()) {
+            entry.state = PublishStatus.State.FAILED;
+            log.error("Giving up publishing article {} after {} attempts: {}", entry.articleId,
+                    entry.failedAttempts, error);
+        } else {
+            long backoff = backoffMillis(entry.failedAttempts);
+            entry.nextAttemptMillis = clockMillis.getAsLong() + backoff;
+            log.warn("Couldn't publish article {}, retrying in {} ms: {}", entry.articleId, backoff, error);
+        }
+        saveQuietly(entry);
+    }
+
+    private void expire(long now) {
+        long expired = now - settings.getRetention().toMillis();
+        entries.values().removeIf(entry -> {
+            if (entry.state == PublishStatus.State.QUEUED || entry.updatedMillis >= expired) {
+                return false;
+            }
+            try {
+                Files.deleteIfExists(file(entry.articleId));
+            } catch (IOException e) {
+                log.warn("Couldn't delete expired publish queue entry for article {}: {}", entry.articleId,
+                        e.getMessage());
+            }
+            return true;
+        });
+    }
+
+    long backoffMillis(int failedAttempts) {
+        long initial = settings.getInitialBackoff().toMillis();
+        long max = settings.getMaxBackoff().toMillis();
+        int doublings = Math.min(failedAttempts - 1, 30);
+        return Math.min(initial << doublings, max);
+    }
+
+    private void load() throws IOException {
+        long expired = clockMillis.getAsLong() - settings.getRetention().toMillis();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+            for (Path file : files) {
+                try {
+                    Entry entry = parse(Files.readString(file, StandardCharsets.UTF_8).trim());
+                    if (entry.state != PublishStatus.State.QUEUED && entry.updatedMillis < expired) {
+                        Files.deleteIfExists(file);
+                    } else {
+                        entries.put(entry.articleId, entry);
+                    }
+                } catch (RuntimeException | MalformedURLException e) {
+                    log.warn("Ignoring unreadable publish queue entry {}: {}", file, e.getMessage());
+                }
+            }
+        }
+        long queued = entries.values().stream().filter(e -> e.state == PublishStatus.State.QUEUED).count();
+        if (queued > 0) {
+            log.info("Loaded {} queued articles from publish queue {}", queued, directory);
+        }
+    }
+
+    // <state> <articleId> <failedAttempts> <nextAttemptMillis> <updatedMillis> <link or -> <account or ->
+    // <last error, to end of line>
+    private static String format(Entry entry) {
+        String error = entry.lastError == null ? "" : entry.lastError.replaceAll("\\s+", " ");
+        return String.join(" ", entry.state.name(), Long.toString(entry.articleId),
+                Integer.toString(entry.failedAttempts), Long.toString(entry.nextAttemptMillis),
+                Long.toString(entry.updatedMillis), entry.link == null ? "-" : entry.link.toString(),
+                entry.account == null ? "-" : entry.account, error).trim();
+    }
+
+    private static Entry parse(String line) throws MalformedURLException {
+        String[] fields = line.split(" ", 8);
+        Entry entry = new Entry(Long.parseLong(fields[1]), "-".equals(fields[6]) ? null : fields[6], null,
+                "-".equals(fields[5]) ? null : new URL(fields[5]));
+        entry.state = PublishStatus.State.valueOf(fields[0]);
+        entry.failedAttempts = Integer.parseInt(fields[2]);
+        entry.nextAttemptMillis = Long.parseLong(fields[3]);
+        entry.updatedMillis = Long.parseLong(fields[4]);
+        entry.lastError = fields.length > 7 && !fields[7].isEmpty() ? fields[7] : null;
+        return entry;
+    }
+
+    private void save(Entry entry) throws IOException {
+        Path file = file(entry.articleId);
+        Path temp = Files.createTempFile(directory, entry.articleId + ".", ".tmp");
+        try {
+            Files.writeString(temp, format(entry), StandardCharsets.UTF_8);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private Path file(long articleId) {
+        return directory.resolve(articleId + SUFFIX);
+    }
+
+    // failing to save only risks publishing again after a restart, which Figshare tolerates
+    private void saveQuietly(Entry entry) {
+        try {
+            save(entry);
+        } catch (IOException e) {
+            log.warn("Couldn't save publish queue entry for article {}: {}", entry.articleId, e.getMessage());
+        }
+    }
+
+    /**
+     * Stops publishing. Queued articles stay saved, to be published when the queue is next loaded.
+     */
+    @Override
+    public void close() {
+        if (worker != null) {
+            worker.shutdownNow();
+        }
+    }
+}
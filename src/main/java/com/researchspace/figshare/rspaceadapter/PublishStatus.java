@@ -0,0 +1,33 @@
+package com.researchspace.figshare.rspaceadapter;
+
+import lombok.Value;
+
+import java.net.URL;
+
+/**
+ * Where an article is in the {@link PublishQueue}.
+ */
+@Value
+public class PublishStatus {
+
+    public enum State {
+        /** waiting to be published, or to be retried after a failure */
+        QUEUED,
+        PUBLISHED,
+        /** every attempt failed; it won't be retried unless queued again */
+        FAILED
+    }
+
+    long articleId;
+
+    State state;
+
+    /** number of failed attempts */
+    int failedAttempts;
+
+    /** the last failure, or <code>null</code> if there hasn't been one */
+    String lastError;
+
+    /** the article's link: its public URL once published, otherwise the link given when it was queued */
+    URL link;
+}
@@ -0,0 +1,201 @@
+package com.researchspace.figshare.rspaceadapter;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Thread-safe cache for slowly-changing reference data fetched from Figshare, such as categories and licenses.
+ * <ul>
+ * <li>Entries expire {@code ttl} after they were loaded.
+ * <li>Once an entry is older than {@code refreshAfter}, it continues to be served while a fresh value
+ * is loaded in the background.
+ * <li>Concurrent misses for the same key are coalesced, so only one caller loads the value and the others wait for it.
+ * <li>Failed loads are not cached.
+ * <li>When there are more than {@code maxEntries} entries, the least recently used is evicted.
+ * </ul>
+ */
+@Slf4j
+public class ReferenceDataCache<K, V> {
+
+    private static final Executor DEFAULT_REFRESH_EXECUTOR = Executors.newSingleThreadExecutor(
+            new DaemonThreadFactory("figshare-reference-data-refresh"));
+
+    private static class Entry<V> {
+        final CompletableFuture<V> value = new CompletableFuture<>();
+        final AtomicBoolean refreshing = new AtomicBoolean();
+        volatile long loadedAt;
+        volatile long lastAccess;
+
+        Entry(long now) {
+            this.loadedAt = now;
+            this.lastAccess = now;
+        }
+
+        boolean isLoaded() {
+            return value.isDone() && !value.isCompletedExceptionally();
+        }
+    }
+
+    private final Map<K, Entry<V>> entries = new ConcurrentHashMap<>();
+    private final long ttlNanos;
+    private final long refreshAfterNanos;
+    private final int maxEntries;
+    private final Executor refreshExecutor;
+    private final LongSupplier nanoClock;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public ReferenceDataCache(Duration ttl, Duration refreshAfter, int maxEntries) {
+        this(ttl, refreshAfter, maxEntries, DEFAULT_REFRESH_EXECUTOR, System::nanoTime);
+    }
+
+    ReferenceDataCache(Duration ttl, Duration refreshAfter, int maxEntries, Executor refreshExecutor,
+                       LongSupplier nanoClock) {
+        if (refreshAfter.compareTo(ttl) > 0) {
+            throw new IllegalArgumentException("refreshAfter must not be longer than ttl");
+        }
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("maxEntries must be at least 1 but was " + maxEntries);
+        }
+        this.ttlNanos = ttl.toNanos();
+        this.refreshAfterNanos = refreshAfter.toNanos();
+        this.maxEntries = maxEntries;
+        this.refreshExecutor = refreshExecutor;
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * Gets the value for {@code key}, loading it with {@code loader} if it's not cached or has expired.
+     *
+     * @throws RuntimeException any exception thrown by {@code loader}
+     */
+    public V get(K key, Supplier<V> loader) {
+        long now = nanoClock.getAsLong();
+        Entry<V> existing = entries.get(key);
+        if (existing != null && !existing.value.isDone()) {
+            // someone else is loading this; wait for their result rather than loading again
+            misses.increment();
+            return await(existing);
+        }
+        if (existing != null && existing.isLoaded() && now - existing.loadedAt < ttlNanos) {
+            hits.increment();
+            existing.lastAccess = now;
+            if (now - existing.loadedAt >= refreshAfterNanos) {
+                refreshInBackground(key, existing, loader);
+            }
+            return existing.value.join();
+        }
+        misses.increment();
+        Entry<V> fresh = new Entry<>(now);
+        Entry<V> winner = entries.compute(key, (k, current) -> current == null || current == existing ? fresh : current);
+        if (winner == fresh) {
+            load(key, fresh, loader);
+            evictIfFull();
+        }
+        return await(winner);
+    }
+
+    /**
+     * Adds a value obtained elsewhere, such as from a snapshot on disk, unless {@code key} is already cached.
+     * The value is treated as due for refresh, so the first access serves it and reloads it in the background.
+     */
+    public void prime(K key, V value) {
+        long now = nanoClock.getAsLong();
+        Entry<V> primed = new Entry<>(now);
+        primed.loadedAt = now - Math.min(refreshAfterNanos, ttlNanos - 1);
+        primed.value.complete(value);
+        if (entries.putIfAbsent(key, primed) == null) {
+            evictIfFull();
+        }
+    }
+
+    private void load(K key, Entry<V> entry, Supplier<V> loader) {
+        try {
+            V value = loader.get();
+            entry.loadedAt = nanoClock.getAsLong();
+            entry.value.complete(value);
+        } catch (RuntimeException e) {
+            entries.remove(key, entry);
+            entry.value.completeExceptionally(e);
+        }
+    }
+
+    private void refreshInBackground(K key, Entry<V> stale, Supplier<V> loader) {
+        if (!stale.refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        refreshExecutor.execute(() -> {
+            Entry<V> refreshed = new Entry<>(stale.lastAccess);
+            try {
+                V value = loader.get();
+                refreshed.loadedAt = nanoClock.getAsLong();
+                refreshed.value.complete(value);
+                entries.replace(key, stale, refreshed);
+            } catch (RuntimeException e) {
+                log.warn("Background refresh of {} failed, will retry on next access: {}", key, e.getMessage());
+                stale.refreshing.set(false);
+            }
+        });
+    }
+
+    private void evictIfFull() {
+        while (entries.size() > maxEntries) {
+            Optional<Map.Entry<K, Entry<V>>> leastRecentlyUsed = entries.entrySet().stream()
+                    .filter(e -> e.getValue().value.isDone())
+                    .min(Comparator.comparingLong(e -> e.getValue().lastAccess));
+            if (leastRecentlyUsed.isEmpty()) {
+                return; // only in-flight loads remain
+            }
+            entries.remove(leastRecentlyUsed.get().getKey(), leastRecentlyUsed.get().getValue());
+        }
+    }
+
+    private V await(Entry<V> entry) {
+        try {
+            return entry.value.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Removes all entries, so that the next access to any key loads it again.
+     */
+    public void invalidateAll() {
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return number of lookups served from the cache
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * @return number of lookups that loaded a value, or waited for another caller to load it
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+}
@@ -0,0 +1,111 @@
+package com.researchspace.figshare.rspaceadapter;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.researchspace.figshare.model.FigshareCategory;
+import com.researchspace.figshare.model.FigshareLicense;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Figshare categories and licenses saved as a versioned JSON file, so that they're available at startup
+ * without a request to Figshare. Snapshots are replaced atomically, and ones that can't be read, or were
+ * written by a different version, are ignored.
+ */
+@Slf4j
+public class ReferenceDataSnapshot {
+
+    static final int VERSION = 1;
+
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Contents {
+        private int version;
+        /** epoch millis at which the snapshot was written */
+        private long savedAt;
+        /** categories, or <code>null</code> if they hadn't been fetched */
+        private List<FigshareCategory> categories;
+        /** licenses, or <code>null</code> if they hadn't been fetched */
+        private List<FigshareLicense> licenses;
+    }
+
+    private final Path file;
+
+    public ReferenceDataSnapshot(Path file) {
+        this.file = file.toAbsolutePath();
+    }
+
+    /**
+     * @return the saved snapshot, or empty if there isn't a usable one
+     */
+    public Optional<Contents> load() {
+        if (!Files.exists(file)) {
+            return Optional.empty();
+        }
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file))) {
+            Contents contents = MAPPER.readValue(in, Contents.class);
+            if (contents.getVersion() != VERSION) {
+                log.info("Ignoring reference data snapshot {} with version {}", file, contents.getVersion());
+                return Optional.empty();
+            }
+            return Optional.of(contents);
+        } catch (IOException e) {
+            log.warn("Ignoring unreadable reference data snapshot {}: {}", file, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Replaces the snapshot. Failure to write it is logged rather than thrown, as the snapshot is only an
+     * optimisation.
+     *
+     * @param categories categories, or <code>null</code> if not known
+     * @param licenses   licenses, or <code>null</code> if not known
+     */
+    public void save(List<FigshareCategory> categories, List<FigshareLicense> licenses) {
+        Contents contents = new Contents(VERSION, System.currentTimeMillis(), categories, licenses);
+        Path temp = null;
+        try {
+            Files.createDirectories(file.getParent());
+            temp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(temp))) {
+                MAPPER.writeValue(out, contents);
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("Couldn't save reference data snapshot {}: {}", file, e.getMessage());
+            deleteQuietly(temp);
+        }
+    }
+
+    private static void deleteQuietly(Path temp) {
+        if (temp != null) {
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException e) {
+                log.debug("Couldn't delete {}: {}", temp, e.getMessage());
+            }
+        }
+    }
+
+    public Path getFile() {
+        return file;
+    }
+}
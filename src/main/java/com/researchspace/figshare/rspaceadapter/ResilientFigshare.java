@@ -0,0 +1,176 @@
+package com.researchspace.figshare.rspaceadapter;
+
+import com.researchspace.figshare.api.Figshare;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.io.InterruptedIOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Decorates a {@link Figshare} with the rate limiting, retries and circuit breaking described in
+ * {@link FigshareResilience}.
+ */
+@Slf4j
+final class ResilientFigshare implements InvocationHandler {
+
+    // operations that can safely be repeated if we don't know whether an attempt reached Figshare
+    static final Set<String> IDEMPOTENT_OPERATIONS = Set.of("test", "account", "getArticle", "getCategories",
+            "getLicenses");
+
+    // operations never repeated, even when throttled. Each upload creates a new file on the article, and a 429
+    // may come after some parts were sent, so repeating one would leave a partial file and a duplicate.
+    static final Set<String> UNREPEATABLE_OPERATIONS = Set.of("uploadFile");
+
+    private static final int TOO_MANY_REQUESTS = 429;
+
+    interface Sleeper {
+        void sleep(long nanos) throws InterruptedException;
+    }
+
+    private final Figshare delegate;
+    private final FigshareResilience settings;
+    private final AdaptiveRateLimiter limiter;
+    private final CircuitBreaker breaker;
+    private final Sleeper sleeper;
+
+    ResilientFigshare(Figshare delegate, FigshareResilience settings, LongSupplier nanoClock, Sleeper sleeper) {
+        this.delegate = delegate;
+        this.settings = settings;
+        this.limiter = new AdaptiveRateLimiter(settings.getRequestsPerSecond(), settings.getBurst(), nanoClock);
+        this.breaker = new CircuitBreaker(settings.getFailureThreshold(), settings.getOpenDuration().toNanos(),
+                nanoClock);
+        this.sleeper = sleeper;
+    }
+
+    static Figshare wrap(Figshare delegate, FigshareResilience settings) {
+        return proxy(new ResilientFigshare(delegate, settings, System::nanoTime, TimeUnit.NANOSECONDS::sleep));
+    }
+
+    static Figshare proxy(ResilientFigshare handler) {
+        return (Figshare) Proxy.newProxyInstance(Figshare.class.getClassLoader(), new Class<?>[]{Figshare.class},
+                handler);
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        if (method.getDeclaringClass() == Object.class) {
+            return method.invoke(delegate, args);
+        }
+        boolean idempotent = IDEMPOTENT_OPERATIONS.contains(method.getName());
+        boolean repeatable = !UNREPEATABLE_OPERATIONS.contains(method.getName());
+        for (int attempt = 1; ; attempt++) {
+            if (!breaker.tryAcquire()) {
+                throw new FigshareUnavailableException(String.format(
+                        "Figshare is unavailable after repeated failures; not retrying for another %d seconds",
+                        TimeUnit.NANOSECONDS.toSeconds(breaker.getRemainingOpenNanos())));
+            }
+            try {
+                pause(limiter.reserve());
+            } catch (RuntimeException e) {
+                breaker.releaseTrial();
+                throw e;
+            }
+            try {
+                Object result = method.invoke(delegate, args);
+                breaker.recordAvailable();
+                limiter.onSuccess();
+                return result;
+            } catch (InvocationTargetException e) {
+                Throwable failure = e.getCause();
+                long retryAfter = retryAfterNanos(failure);
+                boolean throttled = isThrottled(failure);
+                boolean unavailable = isUnavailable(failure);
+                if (unavailable) {
+                    breaker.recordUnavailable();
+                } else {
+                    breaker.recordAvailable();
+                }
+                if (throttled) {
+                    limiter.onThrottled(retryAfter);
+                }
+                // a throttled request wasn't processed, so it's safe to repeat whatever the operation
+                if (!repeatable || !(throttled || (idempotent && unavailable))
+                        || attempt >= settings.getMaxAttempts()) {
+                    throw failure;
+                }
+                long delay = Math.max(backoffNanos(attempt), retryAfter);
+                log.warn("{} failed ({}), retrying in {} ms (attempt {} of {})", method.getName(), failure.getMessage(),
+                        TimeUnit.NANOSECONDS.toMillis(delay), attempt, settings.getMaxAttempts());
+                pause(delay);
+            }
+        }
+    }
+
+    private void pause(long nanos) {
+        if (nanos <= 0) {
+            return;
+        }
+        try {
+            sleeper.sleep(nanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResourceAccessException("Interrupted while waiting to call Figshare", new InterruptedIOException());
+        }
+    }
+
+    /**
+     * Exponential backoff with equal jitter: between a half and the whole of the exponential delay.
+     */
+    long backoffNanos(int attempt) {
+        long max = settings.getMaxBackoff().toNanos();
+        long exponential = settings.getInitialBackoff().toNanos();
+        for (int i = 1; i < attempt && exponential < max; i++) {
+            exponential *= 2;
+        }
+        exponential = Math.min(exponential, max);
+        return exponential / 2 + ThreadLocalRandom.current().nextLong(exponential / 2 + 1);
+    }
+
+    private static boolean isThrottled(Throwable failure) {
+        return failure instanceof HttpStatusCodeException
+                && ((HttpStatusCodeException) failure).getRawStatusCode() == TOO_MANY_REQUESTS;
+    }
+
+    private static boolean isUnavailable(Throwable failure) {
+        return failure instanceof HttpServerErrorException || failure instanceof ResourceAccessException;
+    }
+
+    /**
+     * @return the delay requested by a Retry-After header in seconds, or 0 if there isn't one
+     */
+    private static long retryAfterNanos(Throwable failure) {
+        if (!(failure instanceof HttpStatusCodeException)) {
+            return 0;
+        }
+        HttpHeaders headers = ((HttpStatusCodeException) failure).getResponseHeaders();
+        String retryAfter = headers == null ? null : headers.getFirst(HttpHeaders.RETRY_AFTER);
+        if (retryAfter == null) {
+            return 0;
+        }
+        try {
+            return TimeUnit.SECONDS.toNanos(Math.max(0, Long.parseLong(retryAfter.trim())));
+        } catch (NumberFormatException e) {
+            // an HTTP date; rare enough that backing off as usual is good enough
+            return 0;
+        }
+    }
+
+    AdaptiveRateLimiter getLimiter() {
+        return limiter;
+    }
+
+    CircuitBreaker getBreaker() {
+        return breaker;
+    }
+}
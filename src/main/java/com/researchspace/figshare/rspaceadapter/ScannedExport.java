@@ -0,0 +1,57 @@
+package com.researchspace.figshare.rspaceadapter;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Files of a {@link DepositPlan} that still need uploading, found before the deposit's article exists.
+ * Closing it closes the plan.
+ */
+final class ScannedExport implements Closeable {
+
+    private final DepositPlan plan;
+    private final List<UploadSource> toUpload = new ArrayList<>();
+    private long bytesToUpload;
+    private int alreadyUploaded;
+
+    ScannedExport(DepositPlan plan) {
+        this.plan = plan;
+    }
+
+    void add(UploadSource source) {
+        toUpload.add(source);
+        bytesToUpload += Math.max(source.getSize(), 0);
+    }
+
+    void addAlreadyUploaded() {
+        alreadyUploaded++;
+    }
+
+    /**
+     * @return files to upload, in the order of the plan
+     */
+    List<UploadSource> getToUpload() {
+        return Collections.unmodifiableList(toUpload);
+    }
+
+    /**
+     * @return total size of the files to upload, excluding any of unknown size
+     */
+    long getBytesToUpload() {
+        return bytesToUpload;
+    }
+
+    /**
+     * @return number of files uploaded by an earlier attempt at this deposit
+     */
+    int getAlreadyUploaded() {
+        return alreadyUploaded;
+    }
+
+    @Override
+    public void close() {
+        plan.close();
+    }
+}
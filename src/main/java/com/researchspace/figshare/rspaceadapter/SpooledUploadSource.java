@@ -0,0 +1,93 @@
+package com.researchspace.figshare.rspaceadapter;
+
+import org.apache.commons.io.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+
+/**
+ * Spools content to a temporary file just before upload, and deletes it straight afterwards, as the Figshare
+ * client only uploads from a {@link File}. Disk usage is therefore bounded by the number of uploads in flight
+ * times the size of the largest entry, rather than by the size of the archive.
+ */
+class SpooledUploadSource implements UploadSource {
+
+    private final String name;
+    private final long size;
+    private final String fingerprint;
+    private final StreamSupplier supplier;
+    private Path spoolDir;
+    private volatile boolean digestOnAcquire;
+    // MD5 of the content, once it's been read
+    private String md5;
+
+    SpooledUploadSource(String name, long size, String fingerprint, StreamSupplier supplier) {
+        this.name = name;
+        this.size = size;
+        this.fingerprint = fingerprint;
+        this.supplier = supplier;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public long getSize() {
+        return size;
+    }
+
+    @Override
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    @Override
+    public InputStream openStream() throws IOException {
+        return supplier.open();
+    }
+
+    @Override
+    public synchronized String computeMd5() throws IOException {
+        if (md5 == null) {
+            md5 = Checksums.md5Hex(openStream());
+        }
+        return md5;
+    }
+
+    @Override
+    public void digestOnAcquire() {
+        digestOnAcquire = true;
+    }
+
+    @Override
+    public synchronized File acquire() throws IOException {
+        // a directory per source keeps the original file name, which Figshare uses as the uploaded file's name
+        spoolDir = Files.createTempDirectory("figshare-spool");
+        Path target = spoolDir.resolve(name);
+        MessageDigest digest = digestOnAcquire && md5 == null ? Checksums.newMd5() : null;
+        try (InputStream in = digest == null ? openStream() : new DigestInputStream(openStream(), digest);
+             OutputStream out = Files.newOutputStream(target)) {
+            in.transferTo(out);
+        }
+        if (digest != null) {
+            md5 = Checksums.toHex(digest.digest());
+        }
+        return target.toFile();
+    }
+
+    @Override
+    public synchronized void release() {
+        if (spoolDir != null) {
+            FileUtils.deleteQuietly(spoolDir.toFile());
+            spoolDir = null;
+        }
+    }
+}
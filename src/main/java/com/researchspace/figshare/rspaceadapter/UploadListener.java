@@ -0,0 +1,80 @@
+package com.researchspace.figshare.rspaceadapter;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Notified by {@link ParallelUploader} as individual uploads complete. Callbacks are made
+ * from upload worker threads, so implementations must be thread-safe.
+ */
+@FunctionalInterface
+public interface UploadListener {
+
+    UploadListener NONE = source -> {
+    };
+
+    /**
+     * Called after {@code source} has been successfully uploaded.
+     */
+    void uploaded(UploadSource source);
+
+    /**
+     * Called once, before any uploads start, with everything that will be uploaded.
+     */
+    default void uploadsStarting(List<? extends UploadSource> sources) {
+    }
+
+    /**
+     * Called once {@code source} has been acquired, just before it's uploaded.
+     *
+     * @return <code>true</code> to skip the upload, as the same content is already in the article
+     */
+    default boolean isUnchanged(UploadSource source) throws IOException {
+        return false;
+    }
+
+    /**
+     * Called instead of {@link #uploaded(UploadSource)} if {@code source} wasn't uploaded because it was unchanged.
+     */
+    default void unchanged(UploadSource source) {
+    }
+
+    /**
+     * @return a listener notifying each of {@code listeners} in turn, and treating a source as unchanged
+     * if any of them does
+     */
+    static UploadListener all(UploadListener... listeners) {
+        return new UploadListener() {
+            @Override
+            public void uploaded(UploadSource source) {
+                for (UploadListener listener : listeners) {
+                    listener.uploaded(source);
+                }
+            }
+
+            @Override
+            public boolean isUnchanged(UploadSource source) throws IOException {
+                for (UploadListener listener : listeners) {
+                    if (listener.isUnchanged(source)) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+
+            @Override
+            public void unchanged(UploadSource source) {
+                for (UploadListener listener : listeners) {
+                    listener.unchanged(source);
+                }
+            }
+
+            @Override
+            public void uploadsStarting(List<? extends UploadSource> sources) {
+                for (UploadListener listener : listeners) {
+                    listener.uploadsStarting(sources);
+                }
+            }
+        };
+    }
+}
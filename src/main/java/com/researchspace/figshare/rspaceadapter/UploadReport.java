@@ -0,0 +1,81 @@
+package com.researchspace.figshare.rspaceadapter;
+
+import lombok.Value;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Outcome of uploading a set of files to a single Figshare article.
+ * Outcomes are held in the order in which the files were submitted, regardless of
+ * the order in which the uploads actually completed.
+ */
+@Value
+public class UploadReport {
+
+    @Value
+    public static class Outcome {
+        String fileName;
+        boolean succeeded;
+        String error;
+        /** bytes uploaded, or not uploaded if unchanged; 0 if not known */
+        long bytes;
+        /** not uploaded because the same content was already in the article */
+        boolean unchanged;
+
+        static Outcome success(String fileName, long bytes) {
+            return new Outcome(fileName, true, null, Math.max(bytes, 0), false);
+        }
+
+        static Outcome unchanged(String fileName, long bytes) {
+            return new Outcome(fileName, true, null, Math.max(bytes, 0), true);
+        }
+
+        static Outcome failure(String fileName, String error) {
+            return new Outcome(fileName, false, error, 0, false);
+        }
+    }
+
+    List<Outcome> outcomes;
+
+    /** number of files not uploaded because they were unchanged */
+    int filesUnchanged;
+
+    /** total bytes of the files not uploaded because they were unchanged */
+    long bytesSaved;
+
+    public UploadReport(List<Outcome> outcomes) {
+        this.outcomes = Collections.unmodifiableList(outcomes);
+        this.filesUnchanged = (int) outcomes.stream().filter(Outcome::isUnchanged).count();
+        this.bytesSaved = outcomes.stream().filter(Outcome::isUnchanged).mapToLong(Outcome::getBytes).sum();
+    }
+
+    /**
+     * @return <code>true</code> if every file was uploaded, or was unchanged
+     */
+    public boolean isComplete() {
+        return outcomes.stream().allMatch(Outcome::isSucceeded);
+    }
+
+    /**
+     * @return total bytes of the files successfully uploaded
+     */
+    public long getBytesUploaded() {
+        return outcomes.stream().filter(o -> !o.isUnchanged()).mapToLong(Outcome::getBytes).sum();
+    }
+
+    public List<Outcome> getFailures() {
+        return outcomes.stream().filter(o -> !o.isSucceeded()).collect(Collectors.toList());
+    }
+
+    /**
+     * Human-readable summary of failed uploads, suitable for feedback to the depositor.
+     */
+    public String getFailureSummary() {
+        List<Outcome> failures = getFailures();
+        String details = failures.stream().map(o -> o.getFileName() + " (" + o.getError() + ")")
+                .collect(Collectors.joining(", "));
+        return String.format("%d of %d files failed to upload: %s", failures.size(), outcomes.size(), details);
+    }
+}
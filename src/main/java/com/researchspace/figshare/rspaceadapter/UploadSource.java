@@ -0,0 +1,97 @@
+package com.researchspace.figshare.rspaceadapter;
+
+import org.apache.commons.io.FilenameUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Content to be uploaded as a single file of a Figshare article.
+ * <p>
+ * The Figshare client uploads from a {@link File}, so a source is asked for a file only
+ * for the duration of its own upload: {@link #acquire()} is called immediately before the upload
+ * and {@link #release()} immediately after it, whether or not the upload succeeded.
+ */
+public interface UploadSource {
+
+    /**
+     * Opens a new stream onto content
+     */
+    @FunctionalInterface
+    interface StreamSupplier {
+        InputStream open() throws IOException;
+    }
+
+    /**
+     * @return the file name the content should have in Figshare
+     */
+    String getName();
+
+    /**
+     * @return content length in bytes, or -1 if unknown
+     */
+    long getSize();
+
+    /**
+     * @return a value that changes whenever the content changes and is cheap to obtain, such as
+     * a checksum already known in advance, or <code>null</code> if none is available
+     */
+    String getFingerprint();
+
+    /**
+     * @return a new stream onto this source's content, read without writing it to disk
+     */
+    InputStream openStream() throws IOException;
+
+    /**
+     * @return hex-encoded MD5 of this source's content, which is read in full
+     */
+    default String computeMd5() throws IOException {
+        return Checksums.md5Hex(openStream());
+    }
+
+    /**
+     * Asks later calls to {@link #acquire()} to compute the MD5 of the content as they read it, so that
+     * {@link #computeMd5()} needn't read it again. Ignored by sources that don't read their content to acquire it.
+     */
+    default void digestOnAcquire() {
+    }
+
+    /**
+     * @return a file holding this source's content, valid until {@link #release()}
+     */
+    File acquire() throws IOException;
+
+    /**
+     * Releases any resources obtained by {@link #acquire()}.
+     */
+    void release();
+
+    /**
+     * An upload source for an existing file.
+     */
+    static UploadSource ofFile(File file) {
+        return new FileUploadSource(file);
+    }
+
+    /**
+     * An upload source whose content is read from {@code supplier}, e.g. a zip entry. The content
+     * is spooled to a temporary file only while it's being uploaded.
+     */
+    static UploadSource ofStream(String name, long size, StreamSupplier supplier) {
+        return new SpooledUploadSource(name, size, null, supplier);
+    }
+
+    /**
+     * An upload source read from a zip entry, named after the last path segment of the entry
+     * and fingerprinted by the entry's CRC and size.
+     */
+    static UploadSource ofZipEntry(ZipFile zip, ZipEntry entry) {
+        String fingerprint = String.format("crc32-%08x-%d", entry.getCrc(), entry.getSize());
+        return new SpooledUploadSource(FilenameUtils.getName(entry.getName()), entry.getSize(), fingerprint,
+                () -> zip.getInputStream(entry));
+    }
+}
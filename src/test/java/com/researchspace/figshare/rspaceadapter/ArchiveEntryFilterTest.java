@@ -0,0 +1,60 @@
+package com.researchspace.figshare.rspaceadapter;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ArchiveEntryFilterTest {
+
+	private static final String DOC = "RSpaceArchive-2017/doc_1093/doc_1093.html";
+	private static final String ICON = "RSpaceArchive-2017/resources/pdf.png";
+
+	@Test
+	@DisplayName("The default filter excludes export resources only")
+	void defaultFilter() {
+		assertTrue(ArchiveEntryFilter.DEFAULT.accepts(DOC, 100));
+		assertTrue(ArchiveEntryFilter.DEFAULT.accepts("RSpaceArchive-2017/manifest.txt", -1));
+		assertFalse(ArchiveEntryFilter.DEFAULT.accepts(ICON, 100));
+		assertFalse(ArchiveEntryFilter.DEFAULT.accepts("RSpaceArchive-2017/doc_1093/resources/pdf.png", 100));
+		assertTrue(ArchiveEntryFilter.DEFAULT.accepts("resources/notes.txt", 100));
+		assertTrue(ArchiveEntryFilter.ALL.accepts(ICON, 100));
+	}
+
+	@Test
+	void globs() {
+		ArchiveEntryFilter filter = ArchiveEntryFilter.builder()
+				.include("*/doc_*/**").include("*/index.html").exclude("**/*.tmp").build();
+		assertTrue(filter.accepts(DOC, 100));
+		assertTrue(filter.accepts("RSpaceArchive-2017/index.html", 100));
+		assertFalse(filter.accepts("RSpaceArchive-2017/doc_1093/scratch.tmp", 100));
+		assertFalse(filter.accepts("RSpaceArchive-2017/nested/index.html", 100));
+		assertFalse(filter.accepts(ICON, 100));
+	}
+
+	@Test
+	@DisplayName("Extensions ignore case and a leading dot; oversized entries are excluded")
+	void extensionsAndSize() {
+		ArchiveEntryFilter filter = ArchiveEntryFilter.builder()
+				.includedExtension(".PDF").includedExtension("html").excludedExtension("flv")
+				.maxEntryBytes(1000).build();
+		assertTrue(filter.accepts("a/GENOMIC-DNA.pdf", 1000));
+		assertFalse(filter.accepts("a/GENOMIC-DNA.pdf", 1001));
+		assertTrue(filter.accepts(DOC, -1));
+		assertFalse(filter.accepts("a/notes.txt", 10));
+		assertFalse(filter.accepts("a.pdf/notes", 10));
+
+		ArchiveEntryFilter noVideo = ArchiveEntryFilter.builder().excludedExtension("flv").build();
+		assertFalse(noVideo.accepts("a/video.FLV", 10));
+		assertTrue(noVideo.accepts("a/notes.txt", 10));
+	}
+
+	@Test
+	@DisplayName("Regex metacharacters in globs are matched literally")
+	void literalCharacters() {
+		ArchiveEntryFilter filter = ArchiveEntryFilter.builder().exclude("**/data (1).csv").build();
+		assertFalse(filter.accepts("a/data (1).csv", 10));
+		assertTrue(filter.accepts("a/data 1xcsv", 10));
+	}
+}
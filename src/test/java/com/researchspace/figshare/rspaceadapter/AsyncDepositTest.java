@@ -0,0 +1,158 @@
+package com.researchspace.figshare.rspaceadapter;
+
+import com.researchspace.figshare.api.Figshare;
+import com.researchspace.figshare.model.FigshareCategory;
+import com.researchspace.figshare.model.FigshareResponse;
+import com.researchspace.figshare.model.FilePresenter;
+import com.researchspace.figshare.model.Location;
+import com.researchspace.repository.spi.RepositoryOperationResult;
+import com.researchspace.repository.spi.SubmissionMetadata;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.researchspace.figshare.rspaceadapter.DepositFixture.EXPORT_ZIP;
+import static com.researchspace.figshare.rspaceadapter.DepositFixture.FILES_IN_EXPORT;
+import static com.researchspace.figshare.rspaceadapter.DepositFixture.stubArticle;
+import static java.util.Collections.emptyList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class AsyncDepositTest {
+
+	@Mock Figshare figshare;
+	FigshareRSpaceRepository repo;
+	DepositFixture fixture = new DepositFixture();
+	ExecutorService depositExecutor;
+	List<DepositProgress> events = Collections.synchronizedList(new ArrayList<>());
+
+	@BeforeEach
+	public void setUp() throws Exception {
+		MockitoAnnotations.initMocks(this);
+		Location loc = stubArticle(figshare);
+		FigshareResponse<Location> published = mock(FigshareResponse.class);
+		when(published.getData()).thenReturn(loc);
+		when(figshare.publishArticle(loc.getId())).thenReturn(published);
+		when(figshare.getCategories(false)).thenReturn(List.of(new FigshareCategory(1L, 3L, "c1")));
+
+		depositExecutor = Executors.newSingleThreadExecutor();
+		repo = fixture.newRepository(figshare);
+		repo.setReferenceData(new FigshareReferenceData(Duration.ofHours(1)));
+		repo.setDepositExecutor(depositExecutor);
+	}
+
+	@AfterEach
+	public void tearDown() {
+		fixture.shutdown();
+		depositExecutor.shutdownNow();
+	}
+
+	@Test
+	@DisplayName("Progress is reported for each phase and each uploaded file")
+	void progressReported() throws Exception {
+		RepositoryOperationResult result = repo.submitDepositAsync(null, EXPORT_ZIP, metadata(), null, events::add)
+				.get(10, TimeUnit.SECONDS);
+
+		assertTrue(result.isSucceeded());
+		assertThat(events).extracting(DepositProgress::getPhase).containsSubsequence(
+				DepositPhase.CREATE, DepositPhase.LINK, DepositPhase.UPLOAD, DepositPhase.PUBLISH);
+		DepositProgress afterUploads = events.stream()
+				.filter(e -> e.getFilesDone() == e.getFilesTotal() && e.getFilesTotal() > 0)
+				.findFirst().orElseThrow();
+		assertEquals(FILES_IN_EXPORT, afterUploads.getFilesTotal());
+		assertEquals(afterUploads.getBytesTotal(), afterUploads.getBytesDone());
+		assertThat(afterUploads.getBytesTotal()).isGreaterThan(EXPORT_ZIP.length());
+	}
+
+	@Test
+	@DisplayName("Cancelling a deposit abandons pending uploads and doesn't publish")
+	void cancelStopsUploads() throws Exception {
+		CountDownLatch firstUploadStarted = new CountDownLatch(1);
+		AtomicInteger uploads = new AtomicInteger();
+		when(figshare.uploadFile(any(), any())).thenAnswer(inv -> {
+			uploads.incrementAndGet();
+			firstUploadStarted.countDown();
+			Thread.sleep(200);
+			return null;
+		});
+
+		CompletableFuture<RepositoryOperationResult> deposit =
+				repo.submitDepositAsync(null, EXPORT_ZIP, metadata(), null, events::add);
+		assertTrue(firstUploadStarted.await(10, TimeUnit.SECONDS));
+		deposit.cancel(true);
+		depositExecutor.shutdown();
+		assertTrue(depositExecutor.awaitTermination(10, TimeUnit.SECONDS));
+
+		assertThat(uploads.get()).isLessThan(FILES_IN_EXPORT);
+		verify(figshare, never()).publishArticle(any());
+	}
+
+	@Test
+	@DisplayName("A deposit waiting to be admitted doesn't hold a deposit executor thread")
+	void admissionWaitsOffTheExecutor() throws Exception {
+		when(figshare.uploadFile(any(), any())).thenReturn(new FilePresenter());
+		DepositScheduler scheduler = new DepositScheduler(DepositScheduler.Settings.builder()
+				.maxBytesInFlight(100).smallDepositBytes(0).build());
+		repo.setDepositScheduler(scheduler);
+		DepositScheduler.Permit running = scheduler.admit(60);
+		CountDownLatch admitting = new CountDownLatch(1);
+
+		CompletableFuture<RepositoryOperationResult> deposit = repo.submitDepositAsync(null, EXPORT_ZIP, metadata(),
+				null, progress -> {
+					events.add(progress);
+					if (DepositPhase.ADMIT.equals(progress.getPhase())) {
+						admitting.countDown();
+					}
+				});
+		assertTrue(admitting.await(10, TimeUnit.SECONDS));
+
+		// the executor's only thread is free while the deposit waits
+		assertTrue(depositExecutor.submit(() -> true).get(10, TimeUnit.SECONDS));
+		assertFalse(deposit.isDone());
+		running.close();
+		assertTrue(deposit.get(10, TimeUnit.SECONDS).isSucceeded());
+	}
+
+	@Test
+	@DisplayName("An error thrown by the deposit completes the future exceptionally")
+	void errorCompletesFuture() throws Exception {
+		when(figshare.createArticle(any())).thenThrow(new StackOverflowError());
+
+		CompletableFuture<RepositoryOperationResult> deposit =
+				repo.submitDepositAsync(null, EXPORT_ZIP, metadata(), null, events::add);
+
+		ExecutionException thrown = assertThrows(ExecutionException.class, () -> deposit.get(10, TimeUnit.SECONDS));
+		assertThat(thrown.getCause()).isInstanceOf(StackOverflowError.class);
+	}
+
+	private SubmissionMetadata metadata() {
+		SubmissionMetadata md = new SubmissionMetadata();
+		md.setPublish(true);
+		md.setSubjects(List.of("c1"));
+		md.setAuthors(emptyList());
+		return md;
+	}
+}
@@ -0,0 +1,143 @@
+package com.researchspace.figshare.rspaceadapter;
+
+import com.researchspace.figshare.api.Figshare;
+import com.researchspace.figshare.model.ArticlePresenter;
+import com.researchspace.figshare.model.FigshareCategory;
+import com.researchspace.figshare.model.FigshareResponse;
+import com.researchspace.figshare.model.Location;
+import com.researchspace.repository.spi.RepositoryOperationResult;
+import com.researchspace.repository.spi.SubmissionMetadata;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.web.client.RestClientException;
+
+import java.io.File;
+import java.net.URL;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.researchspace.figshare.rspaceadapter.DepositFixture.EXPORT_ZIP;
+import static com.researchspace.figshare.rspaceadapter.DepositFixture.FILES_IN_EXPORT;
+import static com.researchspace.figshare.rspaceadapter.DepositFixture.location;
+import static java.util.Collections.emptyList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class BatchDepositTest {
+
+	private static final int ITEMS = 6;
+
+	@Mock Figshare figshare;
+	FigshareRSpaceRepository repo;
+	DepositFixture fixture = new DepositFixture();
+	ExecutorService depositExecutor;
+	AtomicLong articleIds = new AtomicLong();
+	AtomicInteger uploads = new AtomicInteger();
+
+	@BeforeEach
+	public void setUp() throws Exception {
+		MockitoAnnotations.initMocks(this);
+		when(figshare.createArticle(any())).thenAnswer(inv -> {
+			long id = articleIds.incrementAndGet();
+			return location("" + id);
+		});
+		when(figshare.createPrivateArticleLink(anyLong())).thenThrow(RestClientException.class);
+		when(figshare.getArticle(anyLong())).thenReturn(new ArticlePresenter());
+		when(figshare.uploadFile(any(), any())).thenAnswer(inv -> {
+			uploads.incrementAndGet();
+			return null;
+		});
+		when(figshare.getCategories(false)).thenReturn(List.of(new FigshareCategory(1L, 3L, "c1")));
+
+		depositExecutor = Executors.newFixedThreadPool(3);
+		repo = new FigshareRSpaceRepository();
+		repo.setFigshare(figshare);
+		repo.setUploader(fixture.uploader(4, 2));
+		repo.setReferenceData(new FigshareReferenceData(Duration.ofHours(1)));
+		repo.setDepositExecutor(depositExecutor);
+	}
+
+	@AfterEach
+	public void tearDown() {
+		fixture.shutdown();
+		depositExecutor.shutdownNow();
+	}
+
+	@Test
+	@DisplayName("Each item gets its own article, with categories resolved once for the batch")
+	void batchDeposited() {
+		List<RepositoryOperationResult> results = repo.submitDeposits(items(metadata(false)), false);
+
+		assertEquals(ITEMS, results.size());
+		assertThat(results).allMatch(RepositoryOperationResult::isSucceeded);
+		verify(figshare, times(ITEMS)).createArticle(any());
+		verify(figshare, times(1)).getCategories(false);
+		assertEquals(ITEMS * FILES_IN_EXPORT, uploads.get());
+	}
+
+	@Test
+	@DisplayName("Publishing at the end waits until every item has been uploaded")
+	void publishedAtEnd() throws Exception {
+		List<Integer> uploadsWhenPublished = new ArrayList<>();
+		FigshareResponse<Location> published = mock(FigshareResponse.class);
+		when(published.getData()).thenReturn(new Location(new URL("https://figshare.com/public"), emptyList(), "1"));
+		when(figshare.publishArticle(anyLong())).thenAnswer(inv -> {
+			synchronized (uploadsWhenPublished) {
+				uploadsWhenPublished.add(uploads.get());
+			}
+			return published;
+		});
+
+		List<RepositoryOperationResult> results = repo.submitDeposits(items(metadata(true)), true);
+
+		assertThat(results).allMatch(RepositoryOperationResult::isSucceeded);
+		assertThat(uploadsWhenPublished).hasSize(ITEMS).containsOnly(ITEMS * FILES_IN_EXPORT);
+	}
+
+	@Test
+	@DisplayName("A failed item doesn't affect the rest of the batch")
+	void failedItemReported() {
+		List<DepositItem> items = items(metadata(false));
+		items.set(2, new DepositItem(new File("src/test/resources/no-such-file.zip"), metadata(false)));
+
+		List<RepositoryOperationResult> results = repo.submitDeposits(items, false);
+
+		assertFalse(results.get(2).isSucceeded());
+		results.remove(2);
+		assertThat(results).allMatch(RepositoryOperationResult::isSucceeded);
+		assertTrue(uploads.get() >= (ITEMS - 1) * FILES_IN_EXPORT);
+	}
+
+	private List<DepositItem> items(SubmissionMetadata metadata) {
+		List<DepositItem> items = new ArrayList<>();
+		for (int i = 0; i < ITEMS; i++) {
+			items.add(new DepositItem(EXPORT_ZIP, metadata));
+		}
+		return items;
+	}
+
+	private SubmissionMetadata metadata(boolean publish) {
+		SubmissionMetadata md = new SubmissionMetadata();
+		md.setPublish(publish);
+		md.setSubjects(List.of("c1"));
+		md.setAuthors(emptyList());
+		return md;
+	}
+}
@@ -0,0 +1,77 @@
+package com.researchspace.figshare.rspaceadapter;
+
+import com.researchspace.figshare.model.FigshareCategory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CategoryTreeTest {
+
+	CategoryTree tree;
+
+	@BeforeEach
+	public void setUp() {
+		tree = CategorySet.of(List.of(
+				new FigshareCategory(1L, 0L, "Biological Sciences"),
+				new FigshareCategory(2L, 1L, "Genetics"),
+				new FigshareCategory(3L, 2L, "Genomics"),
+				new FigshareCategory(4L, 2L, "Gene Expression"),
+				new FigshareCategory(5L, 0L, "Chemistry"),
+				new FigshareCategory(6L, 5L, "biochemistry"),
+				new FigshareCategory(7L, 99L, "Orphan"))).getTree();
+	}
+
+	@Test
+	@DisplayName("Categories whose parent is missing are roots; children are sorted by title")
+	void hierarchy() {
+		assertEquals(List.of("Biological Sciences", "Chemistry", "Orphan"), titles(tree.getRoots()));
+		assertEquals(List.of("Gene Expression", "Genomics"), titles(tree.getChildren(2)));
+		assertTrue(tree.getChildren(3).isEmpty());
+	}
+
+	@Test
+	void ancestors() {
+		assertEquals(List.of("Biological Sciences", "Genetics"), titles(tree.getAncestors(3)));
+		assertTrue(tree.getAncestors(1).isEmpty());
+		assertTrue(tree.getAncestors(42).isEmpty());
+		assertTrue(tree.isDescendant(4, 1));
+		assertFalse(tree.isDescendant(4, 5));
+	}
+
+	@Test
+	@DisplayName("Prefix search ignores case and pages through matches in title order")
+	void prefixSearch() {
+		Page<FigshareCategory> first = tree.search("gen", 0, 2);
+		assertEquals(List.of("Gene Expression", "Genetics"), titles(first.getItems()));
+		assertEquals(3, first.getTotal());
+		assertTrue(first.hasMore());
+
+		Page<FigshareCategory> second = tree.search("GEN", 2, 2);
+		assertEquals(List.of("Genomics"), titles(second.getItems()));
+		assertFalse(second.hasMore());
+
+		assertEquals(List.of("biochemistry", "Biological Sciences"), titles(tree.search("bio", 0, 10).getItems()));
+		assertEquals(0, tree.search("physics", 0, 10).getTotal());
+		assertEquals(tree.size(), tree.search("", 0, 100).getTotal());
+	}
+
+	@Test
+	@DisplayName("A cycle in parent ids doesn't hang ancestor queries")
+	void cycleTolerated() {
+		CategoryTree cyclic = CategorySet.of(List.of(
+				new FigshareCategory(1L, 2L, "A"),
+				new FigshareCategory(2L, 1L, "B"))).getTree();
+		assertEquals(2, cyclic.getAncestors(1).size());
+	}
+
+	private static List<String> titles(List<FigshareCategory> categories) {
+		return categories.stream().map(FigshareCategory::getTitle).collect(Collectors.toList());
+	}
+}
@@ -0,0 +1,161 @@
+package com.researchspace.figshare.rspaceadapter;
+
+import com.researchspace.figshare.api.Figshare;
+import com.researchspace.figshare.model.ArticlePost;
+import com.researchspace.figshare.model.Location;
+import com.researchspace.repository.spi.RepositoryOperationResult;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static com.researchspace.figshare.rspaceadapter.DepositFixture.ARTICLE_ID;
+import static com.researchspace.figshare.rspaceadapter.DepositFixture.article;
+import static com.researchspace.figshare.rspaceadapter.DepositFixture.location;
+import static com.researchspace.figshare.rspaceadapter.DepositFixture.metadata;
+import static com.researchspace.figshare.rspaceadapter.DepositFixture.stubArticle;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ContentHashIndexTest {
+
+	@Mock Figshare figshare;
+	@TempDir Path tempDir;
+	InMemoryFigshareMetrics metrics = new InMemoryFigshareMetrics();
+	List<String> uploaded = Collections.synchronizedList(new ArrayList<>());
+	Map<String, String> entries = new LinkedHashMap<>();
+	DepositFixture fixture = new DepositFixture();
+
+	@BeforeEach
+	public void setUp() throws Exception {
+		MockitoAnnotations.initMocks(this);
+		stubArticle(figshare);
+		when(figshare.uploadFile(any(), any())).thenAnswer(inv -> {
+			uploaded.add(((File) inv.getArgument(1)).getName());
+			return null;
+		});
+		entries.put("notebook/page1.html", "<p>first page</p>");
+		entries.put("notebook/page2.html", "<p>second page</p>");
+		entries.put("notebook/data.csv", "a,b\n1,2\n");
+	}
+
+	@AfterEach
+	public void tearDown() {
+		fixture.shutdown();
+	}
+
+	@Test
+	@DisplayName("Re-depositing uploads only new and changed files to the earlier article")
+	void onlyChangedFilesUploaded() throws IOException {
+		RepositoryOperationResult first = newRepository().doPost(export("v1.zip"), article(), metadata());
+		assertTrue(first.isSucceeded());
+		assertThat(uploaded).containsExactlyInAnyOrder("v1.zip", "page1.html", "page2.html", "data.csv");
+
+		uploaded.clear();
+		entries.put("notebook/page2.html", "<p>second page, edited</p>");
+		entries.put("notebook/page3.html", "<p>third page</p>");
+		RepositoryOperationResult second = newRepository().doPost(export("v2.zip"), article(), metadata());
+
+		assertTrue(second.isSucceeded());
+		verify(figshare, times(1)).createArticle(any());
+		assertThat(uploaded).containsExactlyInAnyOrder("v2.zip", "page2.html", "page3.html");
+		long unchangedBytes = "<p>first page</p>".length() + "a,b\n1,2\n".length();
+		assertEquals(unchangedBytes, metrics.getDepositBytesSaved().getTotal());
+	}
+
+	@Test
+	@DisplayName("Different article metadata creates a new article and uploads everything")
+	void differentMetadataNotDeduplicated() throws IOException {
+		newRepository().doPost(export("v1.zip"), article(), metadata());
+		uploaded.clear();
+		newRepository().doPost(export("v1.zip"), ArticlePost.builder().title("another title").build(), metadata());
+
+		verify(figshare, times(2)).createArticle(any());
+		assertEquals(4, uploaded.size());
+	}
+
+	@Test
+	@DisplayName("Another account's deposit with the same metadata isn't sent to the earlier article")
+	void indexKeyedByAccount() throws IOException {
+		ContentHashIndex index = new ContentHashIndex(tempDir.resolve("index"));
+		Location article = location(ARTICLE_ID);
+		index.open("key", "token-a").recordArticle(article);
+
+		assertTrue(index.open("key", "token-a").getArticle().isPresent());
+		assertFalse(index.open("key", "token-b").getArticle().isPresent());
+		assertFalse(index.open("key", null).getArticle().isPresent());
+		assertThat(Files.readString(Files.list(tempDir.resolve("index")).findFirst().get())).doesNotContain("token-a");
+	}
+
+	@Test
+	@DisplayName("Each spooled file is read once, both to upload it and to check it's unchanged")
+	void spooledContentReadOnce() throws IOException {
+		ContentHashIndex index = new ContentHashIndex(tempDir.resolve("index"));
+		Location article = location(ARTICLE_ID);
+		AtomicInteger opens = new AtomicInteger();
+		List<UploadSource> sources = new ArrayList<>();
+		entries.forEach((name, content) -> sources.add(UploadSource.ofStream(name.substring(9), content.length(), () -> {
+			opens.incrementAndGet();
+			return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+		})));
+		ParallelUploader uploader = fixture.uploader(2, 2);
+
+		UploadReport first = uploader.uploadSources(figshare, article, sources, index.open("key", null));
+		assertEquals(0, first.getFilesUnchanged());
+		assertEquals(3, opens.get());
+
+		UploadReport second = uploader.uploadSources(figshare, article, sources, index.open("key", null));
+		assertTrue(second.isComplete());
+		assertEquals(3, second.getFilesUnchanged());
+		assertEquals(0, second.getBytesUploaded());
+		assertEquals(6, opens.get());
+		assertEquals(3, uploaded.size());
+	}
+
+	private FigshareRSpaceRepository newRepository() throws IOException {
+		FigshareRSpaceRepository repo = new FigshareRSpaceRepository();
+		repo.setFigshare(figshare);
+		repo.setMetrics(metrics);
+		repo.setUploader(fixture.uploader(2, 2));
+		repo.setContentHashIndex(new ContentHashIndex(tempDir.resolve("index")));
+		return repo;
+	}
+
+	private File export(String name) throws IOException {
+		Path zip = tempDir.resolve(name);
+		try (OutputStream out = Files.newOutputStream(zip); ZipOutputStream zipOut = new ZipOutputStream(out)) {
+			for (Map.Entry<String, String> entry : entries.entrySet()) {
+				zipOut.putNextEntry(new ZipEntry(entry.getKey()));
+				zipOut.write(entry.getValue().getBytes(StandardCharsets.UTF_8));
+				zipOut.closeEntry();
+			}
+		}
+		return zip.toFile();
+	}
+
+}
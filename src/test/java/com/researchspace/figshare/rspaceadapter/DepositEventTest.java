@@ -0,0 +1,24 @@
+package com.researchspace.figshare.rspaceadapter;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class DepositEventTest {
+
+	@Test
+	@DisplayName("Events are logged as a single line of key=value pairs")
+	void keyValueFormat() {
+		DepositEvent upload = new DepositEvent("export.zip", DepositPhase.UPLOAD, true,
+				TimeUnit.MILLISECONDS.toNanos(1500), 10, 2048);
+		assertEquals("deposit=export.zip phase=upload outcome=success durationMs=1500 files=10 bytes=2048",
+				upload.toString());
+
+		DepositEvent create = new DepositEvent("export.zip", DepositPhase.CREATE, false, 0, 0, 0);
+		assertEquals("deposit=export.zip phase=create outcome=failure durationMs=0 files=0 bytes=0",
+				create.toString());
+	}
+}
@@ -0,0 +1,85 @@
+package com.researchspace.figshare.rspaceadapter;
+
+import com.researchspace.figshare.api.Figshare;
+import com.researchspace.figshare.model.ArticlePost;
+import com.researchspace.figshare.model.ArticlePresenter;
+import com.researchspace.figshare.model.Location;
+import com.researchspace.repository.spi.SubmissionMetadata;
+import org.springframework.web.client.RestClientException;
+
+import java.io.File;
+import java.io.UncheckedIOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.util.Collections.emptyList;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+/**
+ * Setup shared by tests that deposit the test export to a mock Figshare client. Uploaders it creates
+ * are shut down by {@link #shutdown()}, which tests call after each test.
+ */
+final class DepositFixture {
+
+	static final File EXPORT_ZIP = new File("src/test/resources/HTMLExportWithAttachments.zip");
+	// the archive itself and its entries
+	static final int FILES_IN_EXPORT = 10;
+	static final String ARTICLE_ID = "1234";
+
+	private final List<ParallelUploader> uploaders = new ArrayList<>();
+
+	static Location location(String id) {
+		try {
+			return new Location(new URL("https://somewhere-on-figshare.com/" + id), emptyList(), id);
+		} catch (MalformedURLException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Stubs {@code figshare} to create article {@link #ARTICLE_ID}, which has no private link.
+	 *
+	 * @return the created article's location
+	 */
+	static Location stubArticle(Figshare figshare) {
+		Location loc = location(ARTICLE_ID);
+		when(figshare.createArticle(any())).thenReturn(loc);
+		when(figshare.createPrivateArticleLink(loc.getId())).thenThrow(RestClientException.class);
+		when(figshare.getArticle(loc.getId())).thenReturn(new ArticlePresenter());
+		return loc;
+	}
+
+	static ArticlePost article() {
+		return ArticlePost.builder().title("title").description("desc").build();
+	}
+
+	static SubmissionMetadata metadata() {
+		SubmissionMetadata md = new SubmissionMetadata();
+		md.setPublish(false);
+		return md;
+	}
+
+	ParallelUploader uploader(int poolSize, int maxInFlightPerArticle) {
+		ParallelUploader uploader = new ParallelUploader(poolSize, maxInFlightPerArticle);
+		uploaders.add(uploader);
+		return uploader;
+	}
+
+	/**
+	 * @return a repository depositing to {@code figshare}, one file at a time
+	 */
+	FigshareRSpaceRepository newRepository(Figshare figshare) {
+		FigshareRSpaceRepository repo = new FigshareRSpaceRepository();
+		repo.setFigshare(figshare);
+		repo.setUploader(uploader(1, 1));
+		return repo;
+	}
+
+	void shutdown() {
+		uploaders.forEach(ParallelUploader::shutdown);
+		uploaders.clear();
+	}
+}
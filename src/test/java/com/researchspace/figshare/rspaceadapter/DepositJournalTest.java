@@ -0,0 +1,138 @@
+package com.researchspace.figshare.rspaceadapter;
+
+import com.researchspace.figshare.api.Figshare;
+import com.researchspace.figshare.model.ArticlePost;
+import com.researchspace.figshare.model.Author;
+import com.researchspace.repository.spi.RepositoryOperationResult;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.web.client.RestClientException;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.researchspace.figshare.rspaceadapter.ArchiveUploadStrategy.ARCHIVE_ONLY;
+import static com.researchspace.figshare.rspaceadapter.ArchiveUploadStrategy.BOTH;
+import static com.researchspace.figshare.rspaceadapter.DepositFixture.ARTICLE_ID;
+import static com.researchspace.figshare.rspaceadapter.DepositFixture.EXPORT_ZIP;
+import static com.researchspace.figshare.rspaceadapter.DepositFixture.FILES_IN_EXPORT;
+import static com.researchspace.figshare.rspaceadapter.DepositFixture.article;
+import static com.researchspace.figshare.rspaceadapter.DepositFixture.location;
+import static com.researchspace.figshare.rspaceadapter.DepositFixture.metadata;
+import static com.researchspace.figshare.rspaceadapter.DepositFixture.stubArticle;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class DepositJournalTest {
+
+	private static final int UPLOADS_BEFORE_FAULT = 4;
+
+	@Mock Figshare figshare;
+	@TempDir Path journalDir;
+	DepositFixture fixture = new DepositFixture();
+	List<String> uploaded = Collections.synchronizedList(new ArrayList<>());
+	AtomicBoolean faulty = new AtomicBoolean(true);
+
+	@BeforeEach
+	public void setUp() throws Exception {
+		MockitoAnnotations.initMocks(this);
+		stubArticle(figshare);
+		// fails every upload once a few have succeeded, until the fault is cleared
+		when(figshare.uploadFile(any(), any())).thenAnswer(inv -> {
+			if (faulty.get() && uploaded.size() >= UPLOADS_BEFORE_FAULT) {
+				throw new RestClientException("Connection reset");
+			}
+			uploaded.add(((File) inv.getArgument(1)).getName());
+			return null;
+		});
+	}
+
+	@AfterEach
+	public void tearDown() {
+		fixture.shutdown();
+	}
+
+	@Test
+	@DisplayName("Resubmitting a failed deposit reuses its article and uploads only the missing files")
+	void failedDepositResumed() throws IOException {
+		RepositoryOperationResult first = newRepository().doPost(EXPORT_ZIP, article(), metadata());
+		assertFalse(first.isSucceeded());
+		assertEquals(UPLOADS_BEFORE_FAULT, uploaded.size());
+
+		faulty.set(false);
+		// a new repository and journal instance, as after a restart
+		RepositoryOperationResult second = newRepository().doPost(EXPORT_ZIP, article(), metadata());
+		assertTrue(second.isSucceeded());
+		verify(figshare, times(1)).createArticle(any());
+		assertEquals(FILES_IN_EXPORT, uploaded.size());
+		assertThat(uploaded).doesNotHaveDuplicates();
+		try (var journals = Files.list(journalDir)) {
+			assertEquals(0, journals.count());
+		}
+	}
+
+	@Test
+	@DisplayName("Different article metadata for the same file starts a new deposit")
+	void differentMetadataNotResumed() throws IOException {
+		newRepository().doPost(EXPORT_ZIP, article(), metadata());
+		faulty.set(false);
+		newRepository().doPost(EXPORT_ZIP, ArticlePost.builder().title("another title").build(), metadata());
+		verify(figshare, times(2)).createArticle(any());
+	}
+
+	@Test
+	@DisplayName("Another account depositing the same file with the same metadata doesn't resume the deposit")
+	void journalKeyedByAccount() throws IOException {
+		DepositJournal journal = new DepositJournal(journalDir);
+		journal.open(EXPORT_ZIP, "key", "token-a").recordArticle(location(ARTICLE_ID));
+
+		assertTrue(journal.open(EXPORT_ZIP, "key", "token-a").getArticle().isPresent());
+		assertFalse(journal.open(EXPORT_ZIP, "key", "token-b").getArticle().isPresent());
+		assertFalse(journal.open(EXPORT_ZIP, "key", null).getArticle().isPresent());
+		try (var journals = Files.list(journalDir)) {
+			assertThat(Files.readString(journals.findFirst().orElseThrow())).doesNotContain("token-a");
+		}
+	}
+
+	@Test
+	@DisplayName("Article keys depend on every field the adapter sets, and not on how they're split")
+	void articleKey() {
+		assertEquals(ArticleKey.of(article()), ArticleKey.of(article()));
+		assertThat(ArticleKey.of(article())).hasSize(32);
+		assertThat(ArticleKey.of(ArticlePost.builder().title("ab").description("c").build()))
+				.isNotEqualTo(ArticleKey.of(ArticlePost.builder().title("a").description("bc").build()));
+		assertThat(ArticleKey.of(ArticlePost.builder().title("title").description("desc").license(1L).build()))
+				.isNotEqualTo(ArticleKey.of(article()));
+		assertThat(ArticleKey.of(ArticlePost.builder().title("title").description("desc")
+				.author(new Author("a@example.org", null)).build()))
+				.isNotEqualTo(ArticleKey.of(article()));
+		// AUTO picks the strategy by size, so an export that grows past the threshold keeps its article
+		assertEquals(ArticleKey.of(ArticlePost.builder().tags(List.of("RSpace", BOTH.getTag())).build()),
+				ArticleKey.of(ArticlePost.builder().tags(List.of("RSpace", ARCHIVE_ONLY.getTag())).build()));
+		assertThat(ArticleKey.of(ArticlePost.builder().tags(List.of("RSpace", "other")).build()))
+				.isNotEqualTo(ArticleKey.of(ArticlePost.builder().tags(List.of("RSpace")).build()));
+	}
+
+	private FigshareRSpaceRepository newRepository() throws IOException {
+		FigshareRSpaceRepository repo = fixture.newRepository(figshare);
+		repo.setDepositJournal(new DepositJournal(journalDir));
+		return repo;
+	}
+}
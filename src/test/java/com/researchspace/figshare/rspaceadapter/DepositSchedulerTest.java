@@ -0,0 +1,195 @@
+package com.researchspace.figshare.rspaceadapter;
+
+import com.researchspace.figshare.api.Figshare;
+import com.researchspace.figshare.model.FilePresenter;
+import com.researchspace.repository.spi.RepositoryOperationResult;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.researchspace.figshare.rspaceadapter.DepositFixture.EXPORT_ZIP;
+import static com.researchspace.figshare.rspaceadapter.DepositFixture.article;
+import static com.researchspace.figshare.rspaceadapter.DepositFixture.metadata;
+import static com.researchspace.figshare.rspaceadapter.DepositFixture.stubArticle;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class DepositSchedulerTest {
+
+	ExecutorService executor = Executors.newCachedThreadPool();
+	AtomicLong clock = new AtomicLong();
+	List<Long> admitted = Collections.synchronizedList(new ArrayList<>());
+	DepositFixture fixture = new DepositFixture();
+
+	@AfterEach
+	public void tearDown() {
+		executor.shutdownNow();
+		fixture.shutdown();
+	}
+
+	@Test
+	@DisplayName("Deposits over the byte budget wait until earlier ones finish")
+	void waitsForBytesInFlight() throws Exception {
+		DepositScheduler scheduler = newScheduler(0, Duration.ofMinutes(10));
+		DepositScheduler.Permit first = scheduler.admit(60);
+		Future<DepositScheduler.Permit> second = admitInBackground(scheduler, 60);
+		awaitQueueDepth(scheduler, 1);
+
+		assertFalse(second.isDone());
+		assertEquals(60, scheduler.getBytesInFlight());
+		first.close();
+		first.close();
+		second.get(5, TimeUnit.SECONDS).close();
+
+		assertEquals(0, scheduler.getBytesInFlight());
+		assertEquals(0, scheduler.getDepositsInFlight());
+		assertEquals(2, scheduler.getAdmittedCount());
+		assertTrue(scheduler.getMaxWait().compareTo(scheduler.getAverageWait()) >= 0);
+	}
+
+	@Test
+	@DisplayName("Small deposits start straight away while large ones run and wait")
+	void smallDepositsAreNotHeldUp() throws Exception {
+		DepositScheduler scheduler = newScheduler(10, Duration.ofMinutes(10));
+		scheduler.admit(100);
+		admitInBackground(scheduler, 50);
+		awaitQueueDepth(scheduler, 1);
+
+		DepositScheduler.Permit small = admitInBackground(scheduler, 10).get(5, TimeUnit.SECONDS);
+		assertEquals(10, small.getBytes());
+		assertEquals(1, scheduler.getQueueDepth());
+	}
+
+	@Test
+	@DisplayName("Waiting deposits start smallest first")
+	void shortestFirst() throws Exception {
+		DepositScheduler scheduler = newScheduler(0, Duration.ofMinutes(10));
+		DepositScheduler.Permit running = scheduler.admit(100);
+		admitInBackground(scheduler, 80);
+		awaitQueueDepth(scheduler, 1);
+		Future<DepositScheduler.Permit> smaller = admitInBackground(scheduler, 30);
+		awaitQueueDepth(scheduler, 2);
+
+		running.close();
+		smaller.get(5, TimeUnit.SECONDS);
+		assertEquals(List.of(30L), admitted);
+		assertEquals(1, scheduler.getQueueDepth());
+	}
+
+	@Test
+	@DisplayName("A deposit that has waited too long starts ahead of smaller ones")
+	void longWaitersAreNotStarved() throws Exception {
+		DepositScheduler scheduler = newScheduler(0, Duration.ofMillis(100));
+		DepositScheduler.Permit running = scheduler.admit(100);
+		Future<DepositScheduler.Permit> larger = admitInBackground(scheduler, 80);
+		awaitQueueDepth(scheduler, 1);
+		clock.addAndGet(Duration.ofMillis(150).toNanos());
+		admitInBackground(scheduler, 30);
+		awaitQueueDepth(scheduler, 2);
+
+		running.close();
+		larger.get(5, TimeUnit.SECONDS);
+		assertEquals(List.of(80L), admitted);
+	}
+
+	@Test
+	@DisplayName("A deposit bigger than the whole budget starts once nothing else is running")
+	void oversizedDepositRunsAlone() throws Exception {
+		DepositScheduler scheduler = newScheduler(0, Duration.ofMinutes(10));
+		DepositScheduler.Permit running = scheduler.admit(10);
+		Future<DepositScheduler.Permit> oversized = admitInBackground(scheduler, 500);
+		awaitQueueDepth(scheduler, 1);
+
+		running.close();
+		assertEquals(500, oversized.get(5, TimeUnit.SECONDS).getBytes());
+	}
+
+	@Test
+	@DisplayName("A continuous stream of small deposits doesn't starve a large one")
+	void smallDepositsDontStarveLargeOnes() throws Exception {
+		DepositScheduler scheduler = newScheduler(10, Duration.ofMinutes(10));
+		DepositScheduler.Permit running = scheduler.admit(60);
+		Future<DepositScheduler.Permit> oversized = admitInBackground(scheduler, 500);
+		Future<DepositScheduler.Permit> large = admitInBackground(scheduler, 95);
+		awaitQueueDepth(scheduler, 2);
+		AtomicBoolean arriving = new AtomicBoolean(true);
+		// each small deposit starts before the last finishes, so some are always in flight
+		Future<?> smalls = executor.submit(() -> {
+			DepositScheduler.Permit previous = scheduler.admit(10);
+			while (arriving.get()) {
+				DepositScheduler.Permit next = scheduler.admit(10);
+				previous.close();
+				previous = next;
+				Thread.sleep(1);
+			}
+			previous.close();
+			return null;
+		});
+
+		try {
+			running.close();
+			large.get(5, TimeUnit.SECONDS).close();
+			oversized.get(5, TimeUnit.SECONDS).close();
+		} finally {
+			arriving.set(false);
+		}
+		smalls.get(5, TimeUnit.SECONDS);
+		assertEquals(0, scheduler.getDepositsInFlight());
+	}
+
+	@Test
+	@DisplayName("Deposits hold their planned bytes until they finish")
+	void repositoryDepositsAreAdmitted() throws Exception {
+		Figshare figshare = mock(Figshare.class);
+		stubArticle(figshare);
+		when(figshare.uploadFile(any(), any())).thenReturn(new FilePresenter());
+		DepositScheduler scheduler = newScheduler(0, Duration.ofMinutes(10));
+		FigshareRSpaceRepository repo = fixture.newRepository(figshare);
+		repo.setDepositScheduler(scheduler);
+
+		RepositoryOperationResult result = repo.doPost(EXPORT_ZIP, article(), metadata());
+
+		assertTrue(result.isSucceeded(), result.getMessage());
+		assertEquals(1, scheduler.getAdmittedCount());
+		assertEquals(0, scheduler.getBytesInFlight());
+	}
+
+	private DepositScheduler newScheduler(long smallDepositBytes, Duration maxWait) {
+		return new DepositScheduler(DepositScheduler.Settings.builder()
+				.maxBytesInFlight(100)
+				.smallDepositBytes(smallDepositBytes)
+				.maxWait(maxWait)
+				.build(), clock::get);
+	}
+
+	private Future<DepositScheduler.Permit> admitInBackground(DepositScheduler scheduler, long bytes) {
+		return executor.submit(() -> {
+			DepositScheduler.Permit permit = scheduler.admit(bytes);
+			admitted.add(bytes);
+			return permit;
+		});
+	}
+
+	private void awaitQueueDepth(DepositScheduler scheduler, int depth) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 5000;
+		while (scheduler.getQueueDepth() != depth && System.currentTimeMillis() < deadline) {
+			Thread.sleep(5);
+		}
+		assertEquals(depth, scheduler.getQueueDepth());
+	}
+}
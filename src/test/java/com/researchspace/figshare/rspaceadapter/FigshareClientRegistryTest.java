@@ -0,0 +1,168 @@
+package com.researchspace.figshare.rspaceadapter;
+
+import com.researchspace.figshare.api.Figshare;
+import com.researchspace.repository.spi.RepositoryConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class FigshareClientRegistryTest {
+
+	private static final Duration IDLE_TIMEOUT = Duration.ofMinutes(30);
+
+	AtomicLong clock = new AtomicLong();
+	List<String> created = Collections.synchronizedList(new ArrayList<>());
+	FigshareClientRegistry registry;
+
+	@BeforeEach
+	public void setUp() {
+		registry = new FigshareClientRegistry(2, IDLE_TIMEOUT, this::newClient, clock::get);
+	}
+
+	@Test
+	void clientsReusedPerToken() {
+		Figshare alice = registry.get("alice-token");
+		assertSame(alice, registry.get("alice-token"));
+		assertNotSame(alice, registry.get("bob-token"));
+		assertEquals(List.of("alice-token", "bob-token"), created);
+		assertEquals(1, registry.getHitCount());
+		assertEquals(2, registry.getMissCount());
+	}
+
+	@Test
+	@DisplayName("Clients can be found by a key for their account, which doesn't contain the token")
+	void clientsFoundByAccount() {
+		Figshare alice = registry.get("alice-token");
+		String account = FigshareClientRegistry.accountKey("alice-token");
+
+		assertSame(alice, registry.findByAccount(account).get());
+		assertFalse(account.contains("alice-token"));
+		assertTrue(registry.findByAccount(FigshareClientRegistry.accountKey("bob-token")).isEmpty());
+	}
+
+	@Test
+	@DisplayName("The least recently used client is evicted when the registry is full")
+	void leastRecentlyUsedEvicted() {
+		registry.get("alice-token");
+		advance(Duration.ofSeconds(1));
+		registry.get("bob-token");
+		advance(Duration.ofSeconds(1));
+		registry.get("alice-token");
+		advance(Duration.ofSeconds(1));
+		registry.get("carol-token");
+
+		assertEquals(2, registry.size());
+		assertEquals(1, registry.getEvictionCount());
+		registry.get("alice-token");
+		registry.get("bob-token");
+		assertEquals(List.of("alice-token", "bob-token", "carol-token", "bob-token"), created);
+	}
+
+	@Test
+	@DisplayName("Clients unused for the idle timeout are evicted on a later access")
+	void idleClientsEvicted() {
+		registry.get("alice-token");
+		advance(IDLE_TIMEOUT.dividedBy(2));
+		registry.get("bob-token");
+		advance(IDLE_TIMEOUT.dividedBy(2));
+		registry.get("bob-token");
+
+		assertEquals(1, registry.size());
+		assertEquals(1, registry.getEvictionCount());
+		registry.get("alice-token");
+		assertEquals(List.of("alice-token", "bob-token", "alice-token"), created);
+	}
+
+	@Test
+	@DisplayName("Concurrent requests for a new token create one client")
+	void concurrentRequestsCreateOneClient() throws Exception {
+		ExecutorService pool = Executors.newFixedThreadPool(8);
+		CountDownLatch start = new CountDownLatch(1);
+		List<Future<Figshare>> clients = new ArrayList<>();
+		try {
+			for (int i = 0; i < 8; i++) {
+				clients.add(pool.submit(() -> {
+					start.await();
+					return registry.get("alice-token");
+				}));
+			}
+			start.countDown();
+			for (Future<Figshare> client : clients) {
+				assertSame(clients.get(0).get(), client.get());
+			}
+		} finally {
+			pool.shutdownNow();
+		}
+		assertEquals(List.of("alice-token"), created);
+	}
+
+	@Test
+	@DisplayName("Per-user repository views share warm clients")
+	void repositoryViewsShareClients() {
+		FigshareRSpaceRepository repository = new FigshareRSpaceRepository();
+		FigshareClientRegistry shared = repository.getClientRegistry();
+		FigshareRSpaceRepository first = repository.forUser(config("alice-token"));
+		FigshareRSpaceRepository second = repository.forUser(config("alice-token"));
+		repository.forUser(config("bob-token"));
+
+		assertSame(shared, first.getClientRegistry());
+		assertSame(shared, second.getClientRegistry());
+		assertEquals(2, shared.size());
+		assertEquals(1, shared.getHitCount());
+		repository.configure(config("alice-token"));
+		assertEquals(2, shared.getHitCount());
+		assertEquals(0, shared.getEvictionCount());
+	}
+
+	@Test
+	@DisplayName("Settings that decorate shared clients can't be changed on a view")
+	void viewsCantRedecorateSharedClients() {
+		FigshareRSpaceRepository repository = new FigshareRSpaceRepository();
+		FigshareRSpaceRepository view = repository.forUser(config("alice-token"));
+		repository.forUser(config("bob-token"));
+
+		assertThrows(IllegalStateException.class, () -> view.setMetrics(new InMemoryFigshareMetrics()));
+		assertThrows(IllegalStateException.class, () -> view.setResilience(FigshareResilience.defaults()));
+		assertThrows(IllegalStateException.class, () -> view.setHttpTransport(FigshareHttpTransport.shared()));
+		assertThrows(IllegalStateException.class, () -> view.configureClientRegistry(1, IDLE_TIMEOUT));
+		assertEquals(2, repository.getClientRegistry().size());
+		assertEquals(0, repository.getClientRegistry().getEvictionCount());
+
+		repository.setResilience(FigshareResilience.defaults());
+		assertEquals(0, repository.getClientRegistry().size());
+	}
+
+	private RepositoryConfig config(String token) {
+		RepositoryConfig config = mock(RepositoryConfig.class);
+		when(config.getIdentifier()).thenReturn(token);
+		return config;
+	}
+
+	private Figshare newClient(String token) {
+		created.add(token);
+		return mock(Figshare.class);
+	}
+
+	private void advance(Duration duration) {
+		clock.addAndGet(duration.toNanos());
+	}
+}
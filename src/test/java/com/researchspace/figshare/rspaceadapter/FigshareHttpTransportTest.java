@@ -0,0 +1,103 @@
+package com.researchspace.figshare.rspaceadapter;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class FigshareHttpTransportTest {
+
+	private static final int REQUESTS = 20;
+	private static final String BODY = "[{\"id\":1,\"title\":\"c1\"}]";
+
+	HttpServer server;
+	Set<Integer> clientPorts = ConcurrentHashMap.newKeySet();
+	String url;
+
+	@BeforeEach
+	public void setUp() throws IOException {
+		server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		server.createContext("/categories", exchange -> {
+			clientPorts.add(exchange.getRemoteAddress().getPort());
+			byte[] body = BODY.getBytes(StandardCharsets.UTF_8);
+			String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+			if (acceptEncoding != null && acceptEncoding.contains("gzip")) {
+				body = gzip(body);
+				exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+			}
+			exchange.getResponseHeaders().set("Content-Type", "application/json");
+			exchange.sendResponseHeaders(200, body.length);
+			try (OutputStream out = exchange.getResponseBody()) {
+				out.write(body);
+			}
+		});
+		server.start();
+		url = "http://localhost:" + server.getAddress().getPort() + "/categories";
+	}
+
+	@AfterEach
+	public void tearDown() {
+		server.stop(0);
+	}
+
+	@Test
+	@DisplayName("Requests reuse a pooled keep-alive connection, and compressed responses are decoded")
+	void connectionsReused() throws IOException {
+		try (FigshareHttpTransport transport = new FigshareHttpTransport(FigshareHttpTransport.Settings.builder().build())) {
+			RestTemplate template = new RestTemplate(transport.getRequestFactory());
+			for (int i = 0; i < REQUESTS; i++) {
+				assertEquals(BODY, template.getForObject(url, String.class));
+			}
+			assertEquals(1, clientPorts.size());
+			assertEquals(1, transport.getPoolStats().getAvailable());
+		}
+	}
+
+	@Test
+	@DisplayName("A transport per request opens a connection per request")
+	void unpooledConnectionsNotReused() throws IOException {
+		for (int i = 0; i < REQUESTS; i++) {
+			try (FigshareHttpTransport transport = new FigshareHttpTransport(FigshareHttpTransport.Settings.builder().build())) {
+				new RestTemplate(transport.getRequestFactory()).getForObject(url, String.class);
+			}
+		}
+		assertEquals(REQUESTS, clientPorts.size());
+	}
+
+	@Test
+	@DisplayName("A lazily created transport can't be reconfigured once in use")
+	void lazyTransportCantBeReconfigured() throws IOException {
+		// its own instance rather than the JVM-wide one, which other tests use
+		FigshareHttpTransport.Lazy lazy = new FigshareHttpTransport.Lazy();
+		FigshareHttpTransport.Settings defaults = FigshareHttpTransport.Settings.builder().build();
+		try (FigshareHttpTransport transport = lazy.get()) {
+			lazy.configure(defaults);
+			assertSame(transport, lazy.get());
+			assertThrows(IllegalStateException.class, () -> lazy.configure(
+					FigshareHttpTransport.Settings.builder().maxConnections(1).build()));
+		}
+	}
+
+	private static byte[] gzip(byte[] content) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+			out.write(content);
+		}
+		return bytes.toByteArray();
+	}
+}
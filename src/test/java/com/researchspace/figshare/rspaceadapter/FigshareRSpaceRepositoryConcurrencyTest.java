@@ -0,0 +1,143 @@
+package com.researchspace.figshare.rspaceadapter;
+
+import com.researchspace.figshare.api.Figshare;
+import com.researchspace.figshare.model.ArticlePost;
+import com.researchspace.figshare.model.FigshareCategory;
+import com.researchspace.repository.spi.RepositoryOperationResult;
+import com.researchspace.repository.spi.Subject;
+import com.researchspace.repository.spi.SubmissionMetadata;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static com.researchspace.core.util.TransformerUtils.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.when;
+
+public class FigshareRSpaceRepositoryConcurrencyTest {
+
+	private static final int THREADS = 16;
+	private static final int ITERATIONS = 500;
+
+	@Mock Figshare figshare;
+	RecordingRepository repo;
+	String categoriesJson;
+	String licensesJson;
+
+	static class RecordingRepository extends FigshareRSpaceRepository {
+		final Queue<ArticlePost> posted = new ConcurrentLinkedQueue<>();
+
+		@Override
+		RepositoryOperationResult doPost(File toDeposit, ArticlePost toPost, SubmissionMetadata metadata) {
+			posted.add(toPost);
+			return null;
+		}
+	}
+
+	@BeforeEach
+	public void setUp() throws Exception {
+		MockitoAnnotations.initMocks(this);
+		categoriesJson = new String(Files.readAllBytes(Paths.get("src/test/resources/categories.json")));
+		licensesJson = new String(Files.readAllBytes(Paths.get("src/test/resources/licenses.json")));
+		List<FigshareCategory> manyCategories = new ArrayList<>();
+		for (long i = 0; i < 2000; i++) {
+			manyCategories.add(new FigshareCategory(i, 0L, "category" + i));
+		}
+		when(figshare.getCategories(false)).thenReturn(manyCategories);
+		repo = new RecordingRepository();
+		repo.setFigshare(figshare);
+		repo.setReferenceData(new FigshareReferenceData(Duration.ofHours(1)));
+	}
+
+	@Test
+	@DisplayName("Concurrent reads, deposits and reconfiguration don't corrupt state or throw")
+	void concurrentUseIsSafe() throws Exception {
+		ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+		CountDownLatch start = new CountDownLatch(1);
+		List<Future<?>> tasks = new ArrayList<>();
+		try {
+			for (int t = 0; t < THREADS; t++) {
+				int thread = t;
+				tasks.add(pool.submit(() -> {
+					start.await();
+					for (int i = 0; i < ITERATIONS; i++) {
+						switch ((thread + i) % 4) {
+							case 0:
+								assertSorted(repo.getSubjects());
+								break;
+							case 1:
+								assertThat(repo.getLicenseConfigInfo().getLicenses()).isNotNull();
+								break;
+							case 2:
+								repo.submitDeposit(null, new File("any"), metadata(), null);
+								break;
+							default:
+								if (i % 50 == 0) {
+									repo.setStaticFigshareConfig(licensesJson, categoriesJson);
+								}
+								assertSorted(repo.getSubjects());
+						}
+					}
+					return null;
+				}));
+			}
+			start.countDown();
+			for (Future<?> task : tasks) {
+				task.get(60, TimeUnit.SECONDS);
+			}
+		} finally {
+			pool.shutdownNow();
+		}
+		assertThat(repo.posted).isNotEmpty();
+		assertThat(repo.posted).allMatch(p -> p.getCategories().size() == 1);
+		// after reconfiguration, the static categories are in use
+		assertEquals(5, repo.getSubjects().size());
+	}
+
+	@Test
+	@DisplayName("Returned lists are unmodifiable snapshots")
+	void listsAreUnmodifiable() throws Exception {
+		repo.setStaticFigshareConfig(licensesJson, categoriesJson);
+		assertThrows(UnsupportedOperationException.class, () -> repo.getFigshareLicenses().clear());
+		assertThrows(UnsupportedOperationException.class, () -> repo.getFigshareCategories().clear());
+		assertThrows(UnsupportedOperationException.class, () -> repo.getSubjects().clear());
+		List<Subject> subjects = new ArrayList<>(List.of(new Subject("b"), new Subject("a")));
+		repo.setSubjects(subjects);
+		subjects.clear();
+		assertEquals("a", repo.getSubjects().get(0).getName());
+	}
+
+	private void assertSorted(List<Subject> subjects) {
+		for (int i = 1; i < subjects.size(); i++) {
+			assertThat(subjects.get(i - 1).getName()).isLessThanOrEqualTo(subjects.get(i).getName());
+		}
+	}
+
+	private SubmissionMetadata metadata() {
+		SubmissionMetadata md = new SubmissionMetadata();
+		md.setAuthors(Collections.emptyList());
+		md.setTitle("title");
+		md.setDescription("desc");
+		md.setSubjects(toList("category42"));
+		return md;
+	}
+}
@@ -21,18 +21,28 @@ import java.net.MalformedURLException;
 import java.net.URL;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
 
 import static com.researchspace.core.util.TransformerUtils.toList;
+import static com.researchspace.figshare.rspaceadapter.DepositFixture.EXPORT_ZIP;
+import static com.researchspace.figshare.rspaceadapter.DepositFixture.FILES_IN_EXPORT;
+import static com.researchspace.figshare.rspaceadapter.DepositFixture.stubArticle;
 import static java.util.Collections.emptyList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.Assert.assertThrows;
 import static org.junit.Assert.assertTrue;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -40,6 +50,7 @@ public class FigshareRSpaceRepositoryTest {
 
 	private static final long PARENT_CATEGORY_ID = 3L;
 	FigshareRSpaceRepositoryTSS repoAdapter;
+	FigshareReferenceData referenceData;
 
 	@Mock Figshare figshare;
 	@Mock IDepositor author;
@@ -63,8 +74,10 @@ public class FigshareRSpaceRepositoryTest {
 	@BeforeEach
 	public void setUp() throws Exception {
 		MockitoAnnotations.initMocks(this);
+		referenceData = new FigshareReferenceData(Duration.ofHours(1));
 		repoAdapter = new FigshareRSpaceRepositoryTSS();
 		repoAdapter.setFigshare(figshare);
+		repoAdapter.setReferenceData(referenceData);
 	}
 
 	@Test
@@ -78,6 +91,46 @@ public class FigshareRSpaceRepositoryTest {
 		assertThat(repoAdapter.toPost.getCategories()).anyMatch(c -> c == C2.getId().intValue());
 	}
 
+	@Test
+	@DisplayName("Every known subject is mapped to a category")
+	void testSubmitDepositMultipleSubjects() {
+		SubmissionMetadata meta = createAMetaDataWithOrcidId();
+		meta.setSubjects(toList(C2.getTitle(), "UNKNOWN", C1.getTitle()));
+
+		when(figshare.getCategories(false)).thenReturn(categories);
+		repoAdapter.submitDeposit(null, new File("any"), meta, null);
+		assertThat(repoAdapter.toPost.getCategories()).containsExactly(C2.getId(), C1.getId());
+	}
+
+	@Test
+	@DisplayName("Licenses are matched by URL, ignoring case of host and trailing slash")
+	void testSubmitDepositMatchesLicenseUrl() throws MalformedURLException {
+		SubmissionMetadata meta = createAMetaDataWithOrcidId();
+		meta.setLicense(Optional.of(new URL("https://CreativeCommons.org/licenses/by-sa/4.0")));
+		FigshareLicense bySa = new FigshareLicense(new URL("https://creativecommons.org/licenses/by-sa/4.0/"), "CC BY-SA 4.0", 8, false);
+
+		when(figshare.getCategories(false)).thenReturn(categories);
+		when(figshare.getLicenses(false)).thenReturn(List.of(bySa));
+		repoAdapter.submitDeposit(null, new File("any"), meta, null);
+		assertThat(repoAdapter.toPost.getLicense().intValue()).isEqualTo(8);
+	}
+
+	@Test
+	@DisplayName("Categories are fetched once for all repositories sharing reference data")
+	void categoriesSharedBetweenRepositories() {
+		when(figshare.getCategories(false)).thenReturn(categories);
+		FigshareRSpaceRepository other = new FigshareRSpaceRepository();
+		other.setFigshare(figshare);
+		other.setReferenceData(referenceData);
+
+		assertEquals(2, repoAdapter.getSubjects().size());
+		assertEquals(2, other.getSubjects().size());
+		assertEquals("c1", other.getSubjects().get(0).getName());
+		verify(figshare, times(1)).getCategories(false);
+		assertEquals(1, referenceData.getCategoryCache().getMissCount());
+		assertEquals(2, referenceData.getCategoryCache().getHitCount());
+	}
+
 	@Test
 	@DisplayName("Unknown category handled gracefully")
 	 void testSubmitDepositUnknownCategory() {
@@ -143,6 +196,101 @@ public class FigshareRSpaceRepositoryTest {
 		assertNull(link);
 	}
 
+	@Test
+	@DisplayName("Zip and its non-resource entries are uploaded; failed uploads are reported and publishing skipped")
+	void incompleteUploadReportedAsFailure() throws MalformedURLException {
+		FigshareRSpaceRepository repo = new FigshareRSpaceRepository();
+		repo.setFigshare(figshare);
+		stubArticle(figshare);
+		when(figshare.uploadFile(any(), argThat(f -> f != null && f.getName().equals("manifest.txt"))))
+				.thenThrow(new RestClientException("500"));
+		SubmissionMetadata meta = createAMetaDataWithOrcidId();
+		meta.setPublish(true);
+
+		RepositoryOperationResult result = repo.doPost(EXPORT_ZIP, ArticlePost.builder().title("t").build(), meta);
+		assertFalse(result.isSucceeded());
+		assertThat(result.getMessage()).contains("1 of 10", "manifest.txt");
+		verify(figshare, times(FILES_IN_EXPORT)).uploadFile(any(), any());
+		verify(figshare, never()).publishArticle(any());
+	}
+
+	@Test
+	@DisplayName("Upload strategy for a small archive is recorded as a tag; other files have no strategy")
+	void archiveUploadStrategyTagged() {
+		when(figshare.getCategories(false)).thenReturn(categories);
+		repoAdapter.submitDeposit(null, EXPORT_ZIP, createAMetaDataWithOrcidId(), null);
+		assertThat(repoAdapter.toPost.getTags()).containsExactly("RSpace", "rspace-upload-archive-and-entries");
+
+		repoAdapter.setArchiveUploadStrategy(ArchiveUploadStrategy.ARCHIVE_ONLY);
+		repoAdapter.submitDeposit(null, EXPORT_ZIP, createAMetaDataWithOrcidId(), null);
+		assertThat(repoAdapter.toPost.getTags()).containsExactly("RSpace", "rspace-upload-archive");
+
+		repoAdapter.submitDeposit(null, new File("any.pdf"), createAMetaDataWithOrcidId(), null);
+		assertThat(repoAdapter.toPost.getTags()).containsExactly("RSpace");
+	}
+
+	@Test
+	@DisplayName("Archive-only and entries-only strategies don't upload content twice")
+	void archiveUploadStrategies() throws MalformedURLException {
+		FigshareRSpaceRepository repo = new FigshareRSpaceRepository();
+		repo.setFigshare(figshare);
+		Location loc = new Location(new URL("https://somewhere-on-figshare.com/1234"), emptyList(), "1234");
+		when(figshare.createArticle(any())).thenReturn(loc);
+		when(figshare.createPrivateArticleLink(loc.getId())).thenThrow(RestClientException.class);
+		when(figshare.getArticle(loc.getId())).thenReturn(new ArticlePresenter());
+
+		repo.setArchiveUploadStrategy(ArchiveUploadStrategy.ARCHIVE_ONLY);
+		assertTrue(repo.doPost(EXPORT_ZIP, ArticlePost.builder().title("t").build(), createAMetaDataWithOrcidId()).isSucceeded());
+		verify(figshare, times(1)).uploadFile(any(), argThat(f -> f.getName().equals(EXPORT_ZIP.getName())));
+		verify(figshare, times(1)).uploadFile(any(), any());
+
+		repo.setArchiveUploadStrategy(ArchiveUploadStrategy.ENTRIES_ONLY);
+		assertTrue(repo.doPost(EXPORT_ZIP, ArticlePost.builder().title("t").build(), createAMetaDataWithOrcidId()).isSucceeded());
+		verify(figshare, times(1)).uploadFile(any(), argThat(f -> f.getName().equals(EXPORT_ZIP.getName())));
+		verify(figshare, times(FILES_IN_EXPORT)).uploadFile(any(), any());
+	}
+
+	@Test
+	@DisplayName("A deposit plan lists filtered entries largest first, before anything is uploaded")
+	void depositPlan() throws IOException {
+		FigshareRSpaceRepository repo = new FigshareRSpaceRepository();
+		repo.setArchiveUploadStrategy(ArchiveUploadStrategy.ENTRIES_ONLY);
+		try (DepositPlan plan = repo.planDeposit(EXPORT_ZIP)) {
+			assertEquals(9, plan.getFileCount());
+			assertEquals(11, plan.getExcludedEntries());
+			assertEquals("1403865083408_video.flv", plan.getSources().get(0).getName());
+			assertThat(plan.getSources()).isSortedAccordingTo((a, b) -> Long.compare(b.getSize(), a.getSize()));
+			assertEquals(plan.getSources().stream().mapToLong(UploadSource::getSize).sum(), plan.getTotalBytes());
+		}
+
+		repo.setEntryFilter(ArchiveEntryFilter.builder().includedExtension("html").build());
+		try (DepositPlan plan = repo.planDeposit(EXPORT_ZIP)) {
+			assertEquals(3, plan.getFileCount());
+		}
+		verify(figshare, never()).uploadFile(any(), any());
+	}
+
+	@Test
+	@DisplayName("Deposits over the size limit are rejected before an article is created")
+	void oversizedDepositRejected() {
+		FigshareRSpaceRepository repo = new FigshareRSpaceRepository();
+		repo.setFigshare(figshare);
+		repo.setMaxDepositBytes(EXPORT_ZIP.length());
+
+		RepositoryOperationResult result = repo.doPost(EXPORT_ZIP, ArticlePost.builder().title("t").build(),
+				createAMetaDataWithOrcidId());
+		assertFalse(result.isSucceeded());
+		assertThat(result.getMessage()).startsWith("Submission rejected");
+		verify(figshare, never()).createArticle(any());
+	}
+
+	@Test
+	void autoArchiveUploadStrategyDependsOnSize() {
+		assertEquals(ArchiveUploadStrategy.BOTH, ArchiveUploadStrategy.AUTO.resolve(ArchiveUploadStrategy.AUTO_THRESHOLD_BYTES));
+		assertEquals(ArchiveUploadStrategy.ARCHIVE_ONLY, ArchiveUploadStrategy.AUTO.resolve(ArchiveUploadStrategy.AUTO_THRESHOLD_BYTES + 1));
+		assertEquals(ArchiveUploadStrategy.ENTRIES_ONLY, ArchiveUploadStrategy.ENTRIES_ONLY.resolve(Long.MAX_VALUE));
+	}
+
 	private SubmissionMetadata createAMetaDataWithOrcidId() {
 		List<ExternalId> ids = new ArrayList<>();
 		ids.add(new ExternalId(IdentifierScheme.ORCID, "1234"));
@@ -0,0 +1,265 @@
+package com.researchspace.figshare.rspaceadapter;
+
+import com.researchspace.figshare.api.Figshare;
+import com.researchspace.figshare.model.ArticlePost;
+import com.researchspace.figshare.model.ArticlePresenter;
+import com.researchspace.figshare.model.FigshareCategory;
+import com.researchspace.figshare.model.FigshareLicense;
+import com.researchspace.figshare.model.FigshareResponse;
+import com.researchspace.figshare.model.Location;
+import com.researchspace.figshare.model.PrivateArticleLink;
+import lombok.Builder;
+import lombok.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+
+import java.io.File;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-process stand-in for the Figshare v2 API, for load and soak testing the adapter without a Figshare account.
+ * Keeps articles, their uploaded files and publication state in memory, and injects latency, server errors
+ * and 429 responses at configured rates.
+ * <p>
+ * Uploads are modelled as Figshare's multi-part uploads: each part of {@link Settings#getPartSize()} bytes
+ * takes {@link Settings#getLatency()}, and may fail independently. Parts go to Figshare's upload service
+ * rather than the rate-limited API, so they're never throttled.
+ */
+final class FigshareStub {
+
+    @Value
+    @Builder
+    static class Settings {
+        /** latency of each call, and of each uploaded part */
+        @Builder.Default
+        Duration latency = Duration.ofMillis(5);
+
+        /** latency varies uniformly by up to this much either side of {@link #latency} */
+        @Builder.Default
+        Duration jitter = Duration.ZERO;
+
+        /** fraction of calls failing with 503 Service Unavailable */
+        @Builder.Default
+        double errorRate = 0;
+
+        /** fraction of calls rejected with 429 Too Many Requests */
+        @Builder.Default
+        double throttleRate = 0;
+
+        /** Retry-After, in seconds, sent with 429 responses */
+        @Builder.Default
+        int retryAfterSeconds = 0;
+
+        @Builder.Default
+        long partSize = 10 * 1024 * 1024;
+
+        @Builder.Default
+        List<FigshareCategory> categories = Collections.emptyList();
+
+        @Builder.Default
+        List<FigshareLicense> licenses = Collections.emptyList();
+    }
+
+    static final class StubArticle {
+        final long id;
+        final String title;
+        /** sizes of completely uploaded files, by name */
+        final Map<String, Long> files = new ConcurrentHashMap<>();
+        /** names of every file whose upload was started, including repeats and failed uploads */
+        final List<String> uploadsStarted = Collections.synchronizedList(new ArrayList<>());
+        volatile boolean published;
+
+        StubArticle(long id, String title) {
+            this.id = id;
+            this.title = title;
+        }
+    }
+
+    private static final String BASE_URL = "https://api.figshare.stub/v2";
+
+    private final Settings settings;
+    private final Map<Long, StubArticle> articles = new ConcurrentHashMap<>();
+    private final AtomicLong nextId = new AtomicLong(1000);
+    private final Map<String, LongAdder> calls = new ConcurrentHashMap<>();
+    private final LongAdder parts = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder throttled = new LongAdder();
+    private final Figshare figshare;
+
+    FigshareStub(Settings settings) {
+        this.settings = settings;
+        this.figshare = (Figshare) Proxy.newProxyInstance(Figshare.class.getClassLoader(),
+                new Class<?>[]{Figshare.class}, (proxy, method, args) -> invoke(method, args));
+    }
+
+    /**
+     * @return a client for this stub
+     */
+    Figshare getFigshare() {
+        return figshare;
+    }
+
+    private Object invoke(Method method, Object[] args) {
+        String operation = method.getName();
+        calls.computeIfAbsent(operation, k -> new LongAdder()).increment();
+        switch (operation) {
+            case "test":
+                respond();
+                return true;
+            case "createArticle":
+                respond();
+                return createArticle((ArticlePost) args[0]);
+            case "getArticle":
+                respond();
+                return getArticle((Long) args[0]);
+            case "uploadFile":
+                // parts are sent to the upload service, which isn't rate-limited
+                return uploadFile((Long) args[0], (File) args[1]);
+            case "createPrivateArticleLink":
+                respond();
+                return createPrivateArticleLink((Long) args[0]);
+            case "publishArticle":
+                respond();
+                return publish((Long) args[0]);
+            case "getCategories":
+                respond();
+                return settings.getCategories();
+            case "getLicenses":
+                respond();
+                return settings.getLicenses();
+            default:
+                respond();
+                return method.getReturnType() == boolean.class ? false : null;
+        }
+    }
+
+    private void respond() {
+        respond(true);
+    }
+
+    /**
+     * Waits for the configured latency, then fails the call if it's chosen to fail.
+     */
+    private void respond(boolean throttle) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long latency = settings.getLatency().toNanos();
+        long jitter = settings.getJitter().toNanos();
+        if (jitter > 0) {
+            latency += random.nextLong(-jitter, jitter + 1);
+        }
+        if (latency > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(latency);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new HttpServerErrorException(HttpStatus.GATEWAY_TIMEOUT, "Interrupted");
+            }
+        }
+        double roll = random.nextDouble();
+        if (throttle && roll < settings.getThrottleRate()) {
+            throttled.increment();
+            HttpHeaders headers = new HttpHeaders();
+            headers.set(HttpHeaders.RETRY_AFTER, Integer.toString(settings.getRetryAfterSeconds()));
+            throw HttpClientErrorException.create(HttpStatus.TOO_MANY_REQUESTS, "Too Many Requests", headers,
+                    null, null);
+        }
+        if (throttle) {
+            roll -= settings.getThrottleRate();
+        }
+        if (roll < settings.getErrorRate()) {
+            errors.increment();
+            throw new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE, "Service Unavailable");
+        }
+    }
+
+    private Location createArticle(ArticlePost post) {
+        long id = nextId.getAndIncrement();
+        articles.put(id, new StubArticle(id, post.getTitle()));
+        return new Location(url("/account/articles/" + id), Collections.emptyList(), Long.toString(id));
+    }
+
+    private StubArticle find(Long id) {
+        StubArticle article = articles.get(id);
+        if (article == null) {
+            throw HttpClientErrorException.create(HttpStatus.NOT_FOUND, "Not Found", new HttpHeaders(), null, null);
+        }
+        return article;
+    }
+
+    private ArticlePresenter getArticle(Long id) {
+        find(id);
+        return new ArticlePresenter();
+    }
+
+    private Object uploadFile(Long articleId, File file) {
+        StubArticle article = find(articleId);
+        // like Figshare, the file exists on the article as soon as its upload starts
+        article.uploadsStarted.add(file.getName());
+        long size = file.length();
+        long partCount = Math.max(1, (size + settings.getPartSize() - 1) / settings.getPartSize());
+        for (long i = 0; i < partCount; i++) {
+            respond(false);
+            parts.increment();
+        }
+        article.files.put(file.getName(), size);
+        return null;
+    }
+
+    private PrivateArticleLink createPrivateArticleLink(Long articleId) {
+        StubArticle article = find(articleId);
+        PrivateArticleLink link = new PrivateArticleLink();
+        link.setWeblink(url("/private/" + article.id));
+        return link;
+    }
+
+    private FigshareResponse<Location> publish(Long articleId) {
+        StubArticle article = find(articleId);
+        article.published = true;
+        return new FigshareResponse<>(new Location(url("/articles/" + article.id), Collections.emptyList(),
+                Long.toString(article.id)), null);
+    }
+
+    private static URL url(String path) {
+        try {
+            return new URL(BASE_URL + path);
+        } catch (MalformedURLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    Map<Long, StubArticle> getArticles() {
+        return Collections.unmodifiableMap(articles);
+    }
+
+    long getCallCount(String operation) {
+        LongAdder count = calls.get(operation);
+        return count == null ? 0 : count.sum();
+    }
+
+    long getPartsUploaded() {
+        return parts.sum();
+    }
+
+    long getErrorCount() {
+        return errors.sum();
+    }
+
+    long getThrottledCount() {
+        return throttled.sum();
+    }
+}
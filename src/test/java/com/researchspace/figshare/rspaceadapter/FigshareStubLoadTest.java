@@ -0,0 +1,165 @@
+package com.researchspace.figshare.rspaceadapter;
+
+import com.researchspace.figshare.model.ArticlePost;
+import com.researchspace.repository.spi.IDepositor;
+import com.researchspace.repository.spi.RepositoryOperationResult;
+import com.researchspace.repository.spi.SubmissionMetadata;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static com.researchspace.core.util.TransformerUtils.toList;
+import static com.researchspace.figshare.rspaceadapter.DepositFixture.EXPORT_ZIP;
+import static com.researchspace.figshare.rspaceadapter.DepositFixture.FILES_IN_EXPORT;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Drives many concurrent deposits against a {@link FigshareStub} and reports throughput and latency.
+ * The defaults are sized for CI; for a soak test, raise them with system properties, e.g.
+ * <code>-Dfigshare.load.deposits=5000 -Dfigshare.load.threads=32 -Dfigshare.load.latencyMillis=50</code>.
+ */
+@Slf4j
+public class FigshareStubLoadTest {
+
+
+	private static final int DEPOSITS = Integer.getInteger("figshare.load.deposits", 60);
+	private static final int THREADS = Integer.getInteger("figshare.load.threads", 8);
+	private static final int LATENCY_MILLIS = Integer.getInteger("figshare.load.latencyMillis", 2);
+
+	@Test
+	@DisplayName("Deposits under load succeed despite throttling, and transient errors only fail their own deposit")
+	void concurrentDeposits() throws Exception {
+		FigshareStub stub = new FigshareStub(FigshareStub.Settings.builder()
+				.latency(Duration.ofMillis(LATENCY_MILLIS)).jitter(Duration.ofMillis(LATENCY_MILLIS / 2))
+				.throttleRate(0.05).errorRate(0.005).build());
+		FigshareRSpaceRepository repo = new FigshareRSpaceRepository();
+		repo.setFigshare(stub.getFigshare());
+		repo.setReferenceData(new FigshareReferenceData(Duration.ofHours(1)));
+		repo.setResilience(FigshareResilience.builder().requestsPerSecond(10_000).burst(1000)
+				.maxAttempts(6).initialBackoff(Duration.ofMillis(5)).maxBackoff(Duration.ofMillis(50)).build());
+
+		LoadReport report = runLoad(repo, DEPOSITS, THREADS);
+		log.info("{} deposits on {} threads: {}; stub returned {} 429s and {} errors", DEPOSITS, THREADS, report,
+				stub.getThrottledCount(), stub.getErrorCount());
+
+		// a 503 from createArticle, uploadFile or publishArticle isn't retried, as they're not idempotent
+		assertThat(report.failures).allMatch(message -> message.contains("Service Unavailable"));
+		assertThat(report.succeeded).isGreaterThanOrEqualTo(DEPOSITS * 3 / 4);
+		assertTrue(stub.getThrottledCount() > 0);
+		// a failed deposit may leave a partial article, but no file is ever uploaded twice
+		for (FigshareStub.StubArticle article : stub.getArticles().values()) {
+			assertThat(article.uploadsStarted).doesNotHaveDuplicates();
+		}
+		long complete = stub.getArticles().values().stream()
+				.filter(a -> a.published && a.files.size() == FILES_IN_EXPORT
+						&& a.uploadsStarted.size() == FILES_IN_EXPORT)
+				.count();
+		assertEquals(report.succeeded, complete);
+	}
+
+	@Test
+	@DisplayName("The stub fails and throttles calls at the configured rates")
+	void faultInjection() {
+		FigshareStub failing = new FigshareStub(FigshareStub.Settings.builder()
+				.latency(Duration.ZERO).errorRate(1).build());
+		HttpServerErrorException error = assertThrows(HttpServerErrorException.class,
+				() -> failing.getFigshare().getCategories(false));
+		assertEquals(HttpStatus.SERVICE_UNAVAILABLE, error.getStatusCode());
+
+		FigshareStub throttling = new FigshareStub(FigshareStub.Settings.builder()
+				.latency(Duration.ZERO).throttleRate(1).retryAfterSeconds(2).build());
+		HttpClientErrorException throttled = assertThrows(HttpClientErrorException.class,
+				() -> throttling.getFigshare().test());
+		assertEquals(HttpStatus.TOO_MANY_REQUESTS, throttled.getStatusCode());
+		assertEquals("2", throttled.getResponseHeaders().getFirst("Retry-After"));
+
+		FigshareStub smallParts = new FigshareStub(FigshareStub.Settings.builder()
+				.latency(Duration.ZERO).partSize(100 * 1024).build());
+		Long article = smallParts.getFigshare().createArticle(ArticlePost.builder().title("t").build()).getId();
+		smallParts.getFigshare().uploadFile(article, EXPORT_ZIP);
+		assertEquals((EXPORT_ZIP.length() + 100 * 1024 - 1) / (100 * 1024), smallParts.getPartsUploaded());
+	}
+
+	static class LoadReport {
+		int succeeded;
+		List<String> failures = new ArrayList<>();
+		double depositsPerSecond;
+		long p50Millis;
+		long p99Millis;
+
+		@Override
+		public String toString() {
+			return String.format("%d succeeded, %d failed, %.1f deposits/s, p50 %d ms, p99 %d ms",
+					succeeded, failures.size(), depositsPerSecond, p50Millis, p99Millis);
+		}
+	}
+
+	static LoadReport runLoad(FigshareRSpaceRepository repo, int deposits, int threads) throws Exception {
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		List<Future<RepositoryOperationResult>> results = new ArrayList<>();
+		long[] latencies = new long[deposits];
+		long start = System.nanoTime();
+		try {
+			for (int i = 0; i < deposits; i++) {
+				int deposit = i;
+				SubmissionMetadata metadata = metadata("Load test deposit " + i);
+				results.add(pool.submit(() -> {
+					long depositStart = System.nanoTime();
+					try {
+						return repo.submitDeposit(null, EXPORT_ZIP, metadata, null);
+					} finally {
+						latencies[deposit] = System.nanoTime() - depositStart;
+					}
+				}));
+			}
+			LoadReport report = new LoadReport();
+			for (Future<RepositoryOperationResult> result : results) {
+				RepositoryOperationResult outcome = result.get();
+				if (outcome.isSucceeded()) {
+					report.succeeded++;
+				} else {
+					report.failures.add(outcome.getMessage());
+				}
+			}
+			report.depositsPerSecond = deposits / ((System.nanoTime() - start) / 1e9);
+			Arrays.sort(latencies);
+			report.p50Millis = TimeUnit.NANOSECONDS.toMillis(percentile(latencies, 50));
+			report.p99Millis = TimeUnit.NANOSECONDS.toMillis(percentile(latencies, 99));
+			return report;
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	private static long percentile(long[] sorted, int percentile) {
+		int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+		return sorted[Math.max(index, 0)];
+	}
+
+	private static SubmissionMetadata metadata(String title) {
+		SubmissionMetadata md = new SubmissionMetadata();
+		md.setAuthors(Collections.<IDepositor>emptyList());
+		md.setContacts(Collections.<IDepositor>emptyList());
+		md.setTitle(title);
+		md.setDescription("desc");
+		md.setPublish(true);
+		md.setSubjects(toList("subject"));
+		return md;
+	}
+}
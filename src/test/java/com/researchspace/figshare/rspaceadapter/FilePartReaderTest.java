@@ -0,0 +1,68 @@
+package com.researchspace.figshare.rspaceadapter;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class FilePartReaderTest {
+
+	private static final long LARGE_FILE_SIZE = 64L * 1024 * 1024;
+	private static final long MAX_HEAP_ALLOCATION = 1024 * 1024;
+
+	@TempDir Path tempDir;
+
+	@Test
+	@DisplayName("Parts cover the whole file, with a shorter last part")
+	void partsCoverFile() throws IOException {
+		byte[] content = new byte[10_000];
+		new Random(1).nextBytes(content);
+		Path file = Files.write(tempDir.resolve("data.bin"), content);
+
+		ByteArrayOutputStream read = new ByteArrayOutputStream();
+		try (FilePartReader parts = new FilePartReader(file, 4096)) {
+			assertEquals(3, parts.getPartCount());
+			for (int i = 0; i < parts.getPartCount(); i++) {
+				ByteBuffer part = parts.readPart(i);
+				assertEquals(i < 2 ? 4096 : 10_000 - 8192, part.remaining());
+				byte[] bytes = new byte[part.remaining()];
+				part.get(bytes);
+				read.write(bytes);
+			}
+		}
+		assertArrayEquals(content, read.toByteArray());
+	}
+
+	@Test
+	@DisplayName("Hashing a large file through mapped parts doesn't copy it through the heap")
+	void largeFileHashedOffHeap() throws IOException {
+		Path file = tempDir.resolve("large.bin");
+		try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+			raf.setLength(LARGE_FILE_SIZE);
+			raf.seek(LARGE_FILE_SIZE / 2);
+			raf.write(new byte[]{1, 2, 3});
+		}
+		String expected = Checksums.md5Hex(Files.newInputStream(file));
+
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		long threadId = Thread.currentThread().getId();
+		long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+		String md5 = Checksums.md5Hex(file);
+		long allocated = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+
+		assertEquals(expected, md5);
+		assertThat(allocated).isLessThan(MAX_HEAP_ALLOCATION);
+	}
+}
@@ -0,0 +1,94 @@
+package com.researchspace.figshare.rspaceadapter;
+
+import com.researchspace.figshare.api.Figshare;
+import com.researchspace.figshare.model.ArticlePost;
+import com.researchspace.figshare.model.Location;
+import com.researchspace.repository.spi.RepositoryOperationResult;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+
+import static com.researchspace.figshare.rspaceadapter.DepositFixture.ARTICLE_ID;
+import static com.researchspace.figshare.rspaceadapter.DepositFixture.EXPORT_ZIP;
+import static com.researchspace.figshare.rspaceadapter.DepositFixture.FILES_IN_EXPORT;
+import static com.researchspace.figshare.rspaceadapter.DepositFixture.location;
+import static com.researchspace.figshare.rspaceadapter.DepositFixture.metadata;
+import static com.researchspace.figshare.rspaceadapter.DepositFixture.stubArticle;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+public class InstrumentedFigshareTest {
+
+	@Mock Figshare figshare;
+	InMemoryFigshareMetrics metrics;
+	Location loc = location(ARTICLE_ID);
+	DepositFixture fixture = new DepositFixture();
+
+	@BeforeEach
+	public void setUp() throws Exception {
+		MockitoAnnotations.initMocks(this);
+		metrics = new InMemoryFigshareMetrics();
+	}
+
+	@AfterEach
+	public void tearDown() {
+		fixture.shutdown();
+	}
+
+	@Test
+	@DisplayName("Calls are timed by operation and outcome")
+	void callsTimedByOutcome() {
+		Figshare instrumented = metrics.instrument(figshare);
+		ArticlePost post = ArticlePost.builder().title("t").build();
+		when(figshare.createArticle(post)).thenReturn(loc);
+		when(figshare.getArticle(loc.getId())).thenThrow(new HttpClientErrorException(HttpStatus.NOT_FOUND))
+				.thenThrow(new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE));
+
+		assertSame(loc, instrumented.createArticle(post));
+		assertThrows(HttpClientErrorException.class, () -> instrumented.getArticle(loc.getId()));
+		assertThrows(HttpServerErrorException.class, () -> instrumented.getArticle(loc.getId()));
+
+		assertEquals(1, metrics.getCalls("createArticle", FigshareMetrics.Outcome.SUCCESS).getCount());
+		assertEquals(1, metrics.getCalls("getArticle", FigshareMetrics.Outcome.CLIENT_ERROR).getCount());
+		assertEquals(1, metrics.getCalls("getArticle", FigshareMetrics.Outcome.SERVER_ERROR).getCount());
+		assertEquals(0, metrics.getCalls("getArticle", FigshareMetrics.Outcome.SUCCESS).getCount());
+	}
+
+	@Test
+	@DisplayName("Uninstrumented client is used when no metrics are recorded")
+	void noMetricsNoDecorator() {
+		assertSame(figshare, FigshareMetrics.NONE.instrument(figshare));
+	}
+
+	@Test
+	@DisplayName("A deposit records upload sizes and phase timings")
+	void depositPhasesAndBytesRecorded() {
+		stubArticle(figshare);
+		FigshareRSpaceRepository repo = fixture.newRepository(figshare);
+		repo.setMetrics(metrics);
+
+		RepositoryOperationResult result = repo.doPost(EXPORT_ZIP, ArticlePost.builder().title("t").build(), metadata());
+
+		assertTrue(result.isSucceeded());
+		assertEquals(FILES_IN_EXPORT, metrics.getCalls("uploadFile", FigshareMetrics.Outcome.SUCCESS).getCount());
+		assertEquals(FILES_IN_EXPORT, metrics.getFileUploadBytes().getCount());
+		assertEquals(1, metrics.getDepositBytes().getCount());
+		assertThat(metrics.getDepositBytes().getTotal()).isGreaterThan(EXPORT_ZIP.length());
+		assertEquals(metrics.getFileUploadBytes().getTotal(), metrics.getDepositBytes().getTotal());
+		for (String phase : new String[]{DepositPhase.CREATE, DepositPhase.LINK, DepositPhase.UPLOAD}) {
+			assertEquals(1, metrics.getDepositPhase(phase, true).getCount(), phase);
+		}
+		assertEquals(0, metrics.getDepositPhase(DepositPhase.PUBLISH, true).getCount());
+	}
+}
@@ -0,0 +1,150 @@
+package com.researchspace.figshare.rspaceadapter;
+
+import com.researchspace.figshare.api.Figshare;
+import com.researchspace.figshare.model.Location;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.web.client.RestClientException;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.Collections.emptyList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.when;
+
+public class ParallelUploaderTest {
+
+	private static final long UPLOAD_LATENCY_MILLIS = 100;
+	private static final int FILE_COUNT = 16;
+
+	@Mock Figshare figshare;
+	ParallelUploader uploader;
+	Location article;
+
+	@BeforeEach
+	public void setUp() throws Exception {
+		MockitoAnnotations.initMocks(this);
+		uploader = new ParallelUploader(8, 8);
+		article = new Location(new URL("https://somewhere-on-figshare.com/1234"), emptyList(), "1234");
+	}
+
+	@AfterEach
+	public void tearDown() {
+		uploader.shutdown();
+	}
+
+	@Test
+	@DisplayName("Concurrent uploads are faster than serial uploads for slow Figshare responses")
+	void uploadsRunConcurrently() throws Exception {
+		AtomicInteger inFlight = new AtomicInteger();
+		AtomicInteger maxSeen = new AtomicInteger();
+		when(figshare.uploadFile(any(), any())).thenAnswer(inv -> {
+			maxSeen.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+			Thread.sleep(UPLOAD_LATENCY_MILLIS);
+			inFlight.decrementAndGet();
+			return null;
+		});
+		long start = System.currentTimeMillis();
+		UploadReport report = uploader.upload(figshare, article, files(FILE_COUNT));
+		long elapsed = System.currentTimeMillis() - start;
+
+		assertTrue(report.isComplete());
+		assertEquals(FILE_COUNT, report.getOutcomes().size());
+		// concurrency is observed directly; the time bound allows for a loaded machine
+		assertThat(maxSeen.get()).isGreaterThan(1);
+		long serialTime = FILE_COUNT * UPLOAD_LATENCY_MILLIS;
+		assertThat(elapsed).isLessThan(serialTime);
+	}
+
+	@Test
+	@DisplayName("In-flight uploads per article never exceed the configured limit")
+	void perArticleLimitRespected() throws Exception {
+		ParallelUploader limited = new ParallelUploader(8, 2);
+		AtomicInteger inFlight = new AtomicInteger();
+		AtomicInteger maxSeen = new AtomicInteger();
+		when(figshare.uploadFile(any(), any())).thenAnswer(inv -> {
+			maxSeen.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+			Thread.sleep(20);
+			inFlight.decrementAndGet();
+			return null;
+		});
+		try {
+			assertTrue(limited.upload(figshare, article, files(FILE_COUNT)).isComplete());
+			assertThat(maxSeen.get()).isLessThanOrEqualTo(2);
+		} finally {
+			limited.shutdown();
+		}
+	}
+
+	@Test
+	@DisplayName("Failures are aggregated and reported in submission order")
+	void failuresAggregated() throws Exception {
+		when(figshare.uploadFile(any(), argThat(f -> f != null && f.getName().equals("file3.txt"))))
+				.thenThrow(new RestClientException("503 Service Unavailable"));
+		List<File> files = files(5);
+		UploadReport report = uploader.upload(figshare, article, files);
+
+		assertFalse(report.isComplete());
+		assertEquals(1, report.getFailures().size());
+		for (int i = 0; i < files.size(); i++) {
+			assertEquals(files.get(i).getName(), report.getOutcomes().get(i).getFileName());
+		}
+		assertThat(report.getFailureSummary()).contains("1 of 5", "file3.txt", "503");
+	}
+
+	@Test
+	@DisplayName("Streamed sources are only on disk while being uploaded")
+	void streamedSourcesSpooledPerUpload() throws Exception {
+		ParallelUploader limited = new ParallelUploader(8, 2);
+		List<File> spooled = Collections.synchronizedList(new ArrayList<>());
+		AtomicInteger onDisk = new AtomicInteger();
+		AtomicInteger maxOnDisk = new AtomicInteger();
+		when(figshare.uploadFile(any(), any())).thenAnswer(inv -> {
+			File f = inv.getArgument(1);
+			assertTrue(f.exists());
+			spooled.add(f);
+			maxOnDisk.accumulateAndGet(onDisk.incrementAndGet(), Math::max);
+			Thread.sleep(20);
+			onDisk.decrementAndGet();
+			return null;
+		});
+		List<UploadSource> sources = new ArrayList<>();
+		for (int i = 0; i < FILE_COUNT; i++) {
+			byte[] content = ("content" + i).getBytes();
+			sources.add(UploadSource.ofStream("entry" + i + ".txt", content.length, () -> new ByteArrayInputStream(content)));
+		}
+		try {
+			UploadReport report = limited.uploadSources(figshare, article, sources);
+			assertTrue(report.isComplete());
+			assertEquals("entry0.txt", report.getOutcomes().get(0).getFileName());
+			assertThat(maxOnDisk.get()).isLessThanOrEqualTo(2);
+			assertEquals(FILE_COUNT, spooled.size());
+			assertThat(spooled).noneMatch(File::exists);
+		} finally {
+			limited.shutdown();
+		}
+	}
+
+	private List<File> files(int count) {
+		List<File> files = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			files.add(new File("file" + i + ".txt"));
+		}
+		return files;
+	}
+}
@@ -0,0 +1,158 @@
+package com.researchspace.figshare.rspaceadapter;
+
+import com.researchspace.figshare.api.Figshare;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.verify;
+
+public class PartUploadFigshareTest {
+
+	private static final long LARGE_FILE_SIZE = 48L * 1024 * 1024;
+	private static final long PART_SIZE = 10L * 1024 * 1024;
+	private static final long MAX_HEAP_ALLOCATION = 4 * 1024 * 1024;
+
+	@TempDir Path tempDir;
+	@Mock Figshare figshare;
+
+	private HttpServer server;
+	private String apiBase;
+	private FigshareHttpTransport transport;
+	private MessageDigest received;
+	private final AtomicLong receivedBytes = new AtomicLong();
+	private final List<String> authorizations = new CopyOnWriteArrayList<>();
+	private volatile boolean completed;
+
+	@BeforeEach
+	void setUp() throws IOException, NoSuchAlgorithmException {
+		MockitoAnnotations.initMocks(this);
+		received = MessageDigest.getInstance("MD5");
+		server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		String base = "http://localhost:" + server.getAddress().getPort();
+		apiBase = base + "/v2";
+		server.createContext("/v2/account/articles/1234/files", exchange -> {
+			authorizations.add(exchange.getRequestHeaders().getFirst("Authorization"));
+			drain(exchange.getRequestBody());
+			respond(exchange, 201, "{\"location\":\"" + apiBase + "/account/articles/1234/files/99\"}");
+		});
+		server.createContext("/v2/account/articles/1234/files/99", exchange -> {
+			drain(exchange.getRequestBody());
+			if ("POST".equals(exchange.getRequestMethod())) {
+				completed = true;
+				respond(exchange, 202, "");
+			} else {
+				respond(exchange, 200, "{\"id\":99,\"name\":\"large.bin\",\"upload_url\":\"" + base + "/upload/tok\"}");
+			}
+		});
+		server.createContext("/upload/tok", this::uploadService);
+		server.start();
+		transport = new FigshareHttpTransport(FigshareHttpTransport.Settings.builder().build());
+	}
+
+	@AfterEach
+	void tearDown() throws IOException {
+		transport.close();
+		server.stop(0);
+	}
+
+	@Test
+	@DisplayName("Uploading a large file sends it in parts from mapped buffers, without copying it through the heap")
+	void largeFileUploadedOffHeap() throws IOException {
+		Path file = tempDir.resolve("large.bin");
+		try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+			raf.setLength(LARGE_FILE_SIZE);
+			raf.seek(LARGE_FILE_SIZE / 2);
+			raf.write(new byte[]{1, 2, 3});
+		}
+		String expected = Checksums.md5Hex(Files.newInputStream(file));
+		Figshare client = PartUploadFigshare.wrap(figshare, "token", transport.getStreamingRequestFactory(), apiBase);
+		// the first upload loads and initializes the HTTP and JSON classes
+		client.uploadFile(1234L, file.toFile());
+		received.reset();
+		receivedBytes.set(0);
+
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		long threadId = Thread.currentThread().getId();
+		long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+		client.uploadFile(1234L, file.toFile());
+		long allocated = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+
+		assertEquals(LARGE_FILE_SIZE, receivedBytes.get());
+		assertEquals(expected, Checksums.toHex(received.digest()));
+		assertThat(completed).isTrue();
+		assertThat(authorizations).contains("token token");
+		assertThat(allocated).isLessThan(MAX_HEAP_ALLOCATION);
+	}
+
+	@Test
+	@DisplayName("Calls other than uploads go to the wrapped client")
+	void otherCallsDelegated() {
+		Figshare client = PartUploadFigshare.wrap(figshare, "token", transport.getStreamingRequestFactory(), apiBase);
+		client.getArticle(1234L);
+		verify(figshare).getArticle(1234L);
+	}
+
+	// lists the parts of LARGE_FILE_SIZE, with inclusive offsets, and accepts each one
+	private void uploadService(HttpExchange exchange) throws IOException {
+		if ("GET".equals(exchange.getRequestMethod())) {
+			StringBuilder parts = new StringBuilder();
+			for (long start = 0, partNo = 1; start < LARGE_FILE_SIZE; start += PART_SIZE, partNo++) {
+				long end = Math.min(start + PART_SIZE, LARGE_FILE_SIZE) - 1;
+				parts.append(parts.length() == 0 ? "" : ",")
+						.append(String.format("{\"partNo\":%d,\"startOffset\":%d,\"endOffset\":%d}", partNo, start, end));
+			}
+			respond(exchange, 200, "{\"parts\":[" + parts + "]}");
+			return;
+		}
+		byte[] buffer = new byte[64 * 1024];
+		try (InputStream in = exchange.getRequestBody()) {
+			for (int n; (n = in.read(buffer)) != -1; ) {
+				received.update(buffer, 0, n);
+				receivedBytes.addAndGet(n);
+			}
+		}
+		respond(exchange, 200, "");
+	}
+
+	private static void drain(InputStream in) throws IOException {
+		byte[] buffer = new byte[4096];
+		while (in.read(buffer) != -1) {
+			// discard
+		}
+	}
+
+	private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+		byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+		exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+		if (bytes.length > 0) {
+			try (OutputStream out = exchange.getResponseBody()) {
+				out.write(bytes);
+			}
+		}
+		exchange.close();
+	}
+}
@@ -0,0 +1,108 @@
+package com.researchspace.figshare.rspaceadapter;
+
+import com.researchspace.figshare.api.Figshare;
+import com.researchspace.figshare.model.FilePresenter;
+import com.researchspace.figshare.model.Location;
+import com.researchspace.repository.spi.RepositoryOperationResult;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.web.client.RestClientException;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.researchspace.figshare.rspaceadapter.DepositFixture.ARTICLE_ID;
+import static com.researchspace.figshare.rspaceadapter.DepositFixture.EXPORT_ZIP;
+import static com.researchspace.figshare.rspaceadapter.DepositFixture.FILES_IN_EXPORT;
+import static com.researchspace.figshare.rspaceadapter.DepositFixture.article;
+import static com.researchspace.figshare.rspaceadapter.DepositFixture.location;
+import static com.researchspace.figshare.rspaceadapter.DepositFixture.metadata;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class PipelinedDepositTest {
+
+	private static final long CREATE_MILLIS = 300;
+	private static final long LINK_MILLIS = 400;
+	private static final long UPLOAD_MILLIS = 40;
+
+	@Mock Figshare figshare;
+	Location loc = location(ARTICLE_ID);
+	AtomicInteger uploads = new AtomicInteger();
+	AtomicBoolean linkInFlight = new AtomicBoolean();
+	AtomicInteger uploadsDuringLink = new AtomicInteger();
+	DepositFixture fixture = new DepositFixture();
+
+	@BeforeEach
+	public void setUp() throws Exception {
+		MockitoAnnotations.initMocks(this);
+		when(figshare.createArticle(any())).thenAnswer(inv -> {
+			Thread.sleep(CREATE_MILLIS);
+			return loc;
+		});
+		when(figshare.uploadFile(any(), any())).thenAnswer(inv -> {
+			if (linkInFlight.get()) {
+				uploadsDuringLink.incrementAndGet();
+			}
+			Thread.sleep(UPLOAD_MILLIS);
+			uploads.incrementAndGet();
+			return new FilePresenter();
+		});
+	}
+
+	@AfterEach
+	public void tearDown() {
+		fixture.shutdown();
+	}
+
+	@Test
+	@DisplayName("Link resolution overlaps uploads, so a deposit takes less than the sum of its calls")
+	void linkOverlapsUploads() throws Exception {
+		when(figshare.createPrivateArticleLink(loc.getId())).thenAnswer(inv -> {
+			linkInFlight.set(true);
+			try {
+				Thread.sleep(LINK_MILLIS);
+			} finally {
+				linkInFlight.set(false);
+			}
+			throw new RestClientException("link unavailable");
+		});
+		long sequentialMillis = CREATE_MILLIS + LINK_MILLIS + FILES_IN_EXPORT * UPLOAD_MILLIS;
+
+		long start = System.nanoTime();
+		RepositoryOperationResult result = fixture.newRepository(figshare).doPost(EXPORT_ZIP, article(), metadata());
+		long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+		assertTrue(result.isSucceeded(), result.getMessage());
+		assertNull(result.getUrl());
+		assertEquals(FILES_IN_EXPORT, uploads.get());
+		// checked by observing the overlap, rather than by timing, which is unreliable on a loaded machine
+		assertThat(uploadsDuringLink.get()).isPositive();
+		assertThat(elapsedMillis).as("sequential would be %dms", sequentialMillis).isLessThan(sequentialMillis);
+	}
+
+	@Test
+	@DisplayName("Failing to create the article fails the deposit without uploading anything")
+	void createFailureStopsDeposit() throws Exception {
+		when(figshare.createArticle(any())).thenThrow(new RestClientException("quota exceeded"));
+
+		RepositoryOperationResult result = fixture.newRepository(figshare).doPost(EXPORT_ZIP, article(), metadata());
+
+		assertFalse(result.isSucceeded());
+		assertEquals("Submission failed - quota exceeded", result.getMessage());
+		verify(figshare, never()).uploadFile(any(), any());
+		verify(figshare, never()).createPrivateArticleLink(any());
+	}
+
+}
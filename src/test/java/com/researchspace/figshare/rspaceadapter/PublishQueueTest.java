@@ -0,0 +1,215 @@
+package com.researchspace.figshare.rspaceadapter;
+
+import com.researchspace.figshare.api.Figshare;
+import com.researchspace.figshare.model.FigshareResponse;
+import com.researchspace.figshare.model.FilePresenter;
+import com.researchspace.figshare.model.Location;
+import com.researchspace.repository.spi.RepositoryOperationResult;
+import com.researchspace.repository.spi.SubmissionMetadata;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.web.client.RestClientException;
+
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import static com.researchspace.figshare.rspaceadapter.DepositFixture.EXPORT_ZIP;
+import static com.researchspace.figshare.rspaceadapter.DepositFixture.article;
+import static com.researchspace.figshare.rspaceadapter.DepositFixture.metadata;
+import static java.util.Collections.emptyList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class PublishQueueTest {
+
+	private static final PublishQueue.Settings SETTINGS = PublishQueue.Settings.builder()
+			.maxAttempts(3)
+			.initialBackoff(Duration.ofSeconds(10))
+			.build();
+
+	@Mock Figshare figshare;
+	@TempDir Path dir;
+	AtomicLong now = new AtomicLong(1_000_000);
+	Location loc;
+	URL privateLink;
+	FigshareResponse<Location> published;
+	DepositFixture fixture = new DepositFixture();
+
+	@BeforeEach
+	public void setUp() throws Exception {
+		MockitoAnnotations.initMocks(this);
+		loc = new Location(new URL("https://somewhere-on-figshare.com/1234"), emptyList(), "1234");
+		privateLink = new URL("https://figshare.com/s/abcd");
+		published = mock(FigshareResponse.class);
+		when(published.getData()).thenReturn(loc);
+	}
+
+	@AfterEach
+	public void tearDown() {
+		fixture.shutdown();
+	}
+
+	@Test
+	@DisplayName("Queued articles are published by the next batch, and their status can be looked up")
+	void publishesQueuedArticle() throws Exception {
+		when(figshare.publishArticle(loc.getId())).thenReturn(published);
+		PublishQueue queue = newQueue();
+
+		queue.enqueue(figshare, loc, privateLink);
+		assertEquals(PublishStatus.State.QUEUED, queue.getStatus(loc.getId()).get().getState());
+		assertEquals(privateLink, queue.getStatus(loc.getId()).get().getLink());
+
+		queue.publishDue();
+		PublishStatus status = queue.getStatus(loc.getId()).get();
+		assertEquals(PublishStatus.State.PUBLISHED, status.getState());
+		assertEquals(loc.getLocation(), status.getLink());
+		assertEquals(0, queue.getQueuedCount());
+		assertTrue(queue.getStatus(999L).isEmpty());
+
+		// published articles are forgotten once past their retention, without a restart
+		now.addAndGet(Duration.ofDays(8).toMillis());
+		queue.publishDue();
+		assertTrue(queue.getStatus(loc.getId()).isEmpty());
+		try (Stream<Path> files = Files.list(dir)) {
+			assertEquals(0, files.count());
+		}
+	}
+
+	@Test
+	@DisplayName("A failing recovery client counts as a failed attempt rather than stopping publishing")
+	void recoveryClientFailure() throws Exception {
+		newQueue().enqueue(figshare, loc, privateLink);
+		PublishQueue reloaded = newQueue();
+		reloaded.recoverWith(account -> {
+			throw new IllegalStateException("no client configured");
+		});
+
+		reloaded.publishDue();
+		PublishStatus status = reloaded.getStatus(loc.getId()).get();
+		assertEquals(PublishStatus.State.QUEUED, status.getState());
+		assertEquals("no client configured", status.getLastError());
+	}
+
+	@Test
+	@DisplayName("Failed publishes are retried after an exponential backoff, then given up on")
+	void retriesWithBackoff() throws Exception {
+		when(figshare.publishArticle(loc.getId())).thenThrow(new RestClientException("503"));
+		PublishQueue queue = newQueue();
+		queue.enqueue(figshare, loc, privateLink);
+
+		queue.publishDue();
+		assertEquals(1, queue.getStatus(loc.getId()).get().getFailedAttempts());
+		assertEquals("503", queue.getStatus(loc.getId()).get().getLastError());
+
+		// not yet due
+		now.addAndGet(9_000);
+		queue.publishDue();
+		verify(figshare, times(1)).publishArticle(loc.getId());
+
+		now.addAndGet(1_000);
+		queue.publishDue();
+		verify(figshare, times(2)).publishArticle(loc.getId());
+		assertEquals(20_000, queue.backoffMillis(2));
+
+		now.addAndGet(20_000);
+		queue.publishDue();
+		PublishStatus status = queue.getStatus(loc.getId()).get();
+		assertEquals(PublishStatus.State.FAILED, status.getState());
+		assertEquals(3, status.getFailedAttempts());
+
+		now.addAndGet(Duration.ofHours(1).toMillis());
+		queue.publishDue();
+		verify(figshare, times(3)).publishArticle(loc.getId());
+	}
+
+	@Test
+	@DisplayName("Queued articles survive a restart, and are published with the client for their owner's account")
+	void queueIsDurable() throws Exception {
+		Figshare otherUser = mock(Figshare.class);
+		newQueue().enqueue(otherUser, "owner-account", loc, privateLink);
+		assertTrue(Files.readString(dir.resolve(loc.getId() + ".publish")).contains("owner-account"));
+
+		PublishQueue reloaded = newQueue();
+		assertEquals(PublishStatus.State.QUEUED, reloaded.getStatus(loc.getId()).get().getState());
+		assertEquals(privateLink, reloaded.getStatus(loc.getId()).get().getLink());
+
+		// no client for the owner yet, which counts as a failed attempt
+		reloaded.publishDue();
+		assertEquals(1, reloaded.getQueuedCount());
+		assertEquals(1, reloaded.getStatus(loc.getId()).get().getFailedAttempts());
+
+		when(figshare.publishArticle(loc.getId())).thenReturn(published);
+		reloaded.recoverWith(account -> "owner-account".equals(account) ? figshare : null);
+		now.addAndGet(SETTINGS.getInitialBackoff().toMillis());
+		reloaded.publishDue();
+		assertEquals(PublishStatus.State.PUBLISHED, newQueue().getStatus(loc.getId()).get().getState());
+		verify(otherUser, never()).publishArticle(any());
+
+		// published entries are pruned once past their retention
+		now.addAndGet(Duration.ofDays(8).toMillis());
+		assertTrue(newQueue().getStatus(loc.getId()).isEmpty());
+	}
+
+	@Test
+	@DisplayName("An article whose owner has no client after a restart is given up on, not left queued")
+	void unrecoverableArticleFails() throws Exception {
+		newQueue().enqueue(figshare, "owner-account", loc, privateLink);
+		PublishQueue reloaded = newQueue();
+		reloaded.recoverWith(account -> null);
+
+		for (int attempt = 1; attempt <= SETTINGS.getMaxAttempts(); attempt++) {
+			reloaded.publishDue();
+			now.addAndGet(SETTINGS.getMaxBackoff().toMillis());
+		}
+
+		PublishStatus status = reloaded.getStatus(loc.getId()).get();
+		assertEquals(PublishStatus.State.FAILED, status.getState());
+		assertTrue(status.getLastError().contains("No client"));
+		assertEquals(0, reloaded.getQueuedCount());
+		verify(figshare, never()).publishArticle(any());
+	}
+
+	@Test
+	@DisplayName("With a publish queue, a deposit returns without publishing, and its article is queued")
+	void depositQueuesPublishing() throws Exception {
+		when(figshare.createArticle(any())).thenReturn(loc);
+		when(figshare.createPrivateArticleLink(loc.getId())).thenThrow(RestClientException.class);
+		when(figshare.uploadFile(any(), any())).thenReturn(new FilePresenter());
+		when(figshare.publishArticle(loc.getId())).thenReturn(published);
+		PublishQueue queue = newQueue();
+		FigshareRSpaceRepository repo = fixture.newRepository(figshare);
+		repo.setPublishQueue(queue);
+		SubmissionMetadata md = metadata();
+		md.setPublish(true);
+
+		RepositoryOperationResult result = repo.doPost(EXPORT_ZIP, article(), md);
+
+		assertTrue(result.isSucceeded());
+		assertEquals("Deposit succeeded. Publishing queued", result.getMessage());
+		verify(figshare, never()).publishArticle(any());
+		assertEquals(PublishStatus.State.QUEUED, repo.getPublishStatus(loc.getId()).get().getState());
+
+		queue.publishDue();
+		assertEquals(PublishStatus.State.PUBLISHED, repo.getPublishStatus(loc.getId()).get().getState());
+		assertTrue(repo.getPublishStatus(null).isEmpty());
+	}
+
+	private PublishQueue newQueue() throws Exception {
+		return new PublishQueue(dir, SETTINGS, now::get, false);
+	}
+}
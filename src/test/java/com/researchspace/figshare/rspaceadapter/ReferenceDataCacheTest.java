@@ -0,0 +1,137 @@
+package com.researchspace.figshare.rspaceadapter;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.RestClientException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ReferenceDataCacheTest {
+
+	private static final Duration TTL = Duration.ofMinutes(10);
+	private static final Duration REFRESH_AFTER = Duration.ofMinutes(5);
+
+	AtomicLong clock = new AtomicLong();
+	AtomicInteger loads = new AtomicInteger();
+	ReferenceDataCache<String, String> cache;
+
+	@BeforeEach
+	public void setUp() {
+		// background refreshes run synchronously, so their effect can be asserted straight away
+		cache = new ReferenceDataCache<>(TTL, REFRESH_AFTER, 2, Runnable::run, clock::get);
+	}
+
+	@Test
+	void hitsAndMissesCounted() {
+		assertEquals("v1", cache.get("k", this::load));
+		assertEquals("v1", cache.get("k", this::load));
+		assertEquals("v1", cache.get("k", this::load));
+		assertEquals(1, loads.get());
+		assertEquals(2, cache.getHitCount());
+		assertEquals(1, cache.getMissCount());
+	}
+
+	@Test
+	@DisplayName("Entries are reloaded once their TTL has passed")
+	void expiredEntriesReloaded() {
+		cache.get("k", this::load);
+		advance(TTL.plusSeconds(1));
+		assertEquals("v2", cache.get("k", this::load));
+		assertEquals(2, cache.getMissCount());
+	}
+
+	@Test
+	@DisplayName("Stale entries are served while being refreshed in the background")
+	void staleEntriesRefreshed() {
+		cache.get("k", this::load);
+		advance(REFRESH_AFTER.plusSeconds(1));
+		// the stale value is returned, and the refresh replaces it for the next call
+		assertEquals("v1", cache.get("k", this::load));
+		assertEquals("v2", cache.get("k", this::load));
+		assertEquals(1, cache.getMissCount());
+	}
+
+	@Test
+	@DisplayName("Failed loads are propagated and not cached")
+	void failuresNotCached() {
+		assertThrows(RestClientException.class, () -> cache.get("k", () -> {
+			throw new RestClientException("503");
+		}));
+		assertEquals("v1", cache.get("k", this::load));
+	}
+
+	@Test
+	@DisplayName("Least recently used entries are evicted when full")
+	void leastRecentlyUsedEvicted() {
+		cache.get("a", this::load);
+		advance(Duration.ofSeconds(1));
+		cache.get("b", this::load);
+		advance(Duration.ofSeconds(1));
+		cache.get("a", this::load);
+		advance(Duration.ofSeconds(1));
+		cache.get("c", this::load);
+
+		assertEquals(2, cache.size());
+		int loadsBefore = loads.get();
+		cache.get("a", this::load);
+		assertEquals(loadsBefore, loads.get());
+		cache.get("b", this::load);
+		assertEquals(loadsBefore + 1, loads.get());
+	}
+
+	@Test
+	@DisplayName("Concurrent misses for the same key are coalesced into one load")
+	void concurrentMissesSingleFlight() throws Exception {
+		int threads = 8;
+		CountDownLatch start = new CountDownLatch(1);
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<String>> results = new ArrayList<>();
+			for (int i = 0; i < threads; i++) {
+				results.add(pool.submit(() -> {
+					start.await();
+					return cache.get("k", () -> {
+						sleep(100);
+						return load();
+					});
+				}));
+			}
+			start.countDown();
+			for (Future<String> result : results) {
+				assertEquals("v1", result.get(5, TimeUnit.SECONDS));
+			}
+			assertEquals(1, loads.get());
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	private String load() {
+		return "v" + loads.incrementAndGet();
+	}
+
+	private void advance(Duration duration) {
+		clock.addAndGet(duration.toNanos());
+	}
+
+	private void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,107 @@
+package com.researchspace.figshare.rspaceadapter;
+
+import com.researchspace.figshare.api.Figshare;
+import com.researchspace.figshare.model.FigshareCategory;
+import com.researchspace.figshare.model.FigshareLicense;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.web.client.RestClientException;
+
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ReferenceDataSnapshotTest {
+
+	private static final Duration TTL = Duration.ofHours(1);
+
+	@Mock Figshare figshare;
+	@TempDir Path dir;
+	ReferenceDataSnapshot snapshot;
+	List<FigshareCategory> categories = List.of(new FigshareCategory(1L, null, "Biology"),
+			new FigshareCategory(2L, 1L, "Genetics"));
+	List<FigshareLicense> licenses;
+
+	@BeforeEach
+	public void setUp() throws Exception {
+		MockitoAnnotations.initMocks(this);
+		licenses = List.of(new FigshareLicense(new URL("https://creativecommons.org/licenses/by/4.0/"), "CC BY", 1, true));
+		snapshot = new ReferenceDataSnapshot(dir.resolve("reference-data.json"));
+	}
+
+	@Test
+	@DisplayName("After a restart, data fetched earlier is served from the snapshot while Figshare is unavailable")
+	void servedFromSnapshotAfterRestart() {
+		when(figshare.getCategories(false)).thenReturn(categories);
+		when(figshare.getLicenses(false)).thenReturn(licenses);
+		FigshareReferenceData beforeRestart = newReferenceData();
+		beforeRestart.useSnapshot(snapshot);
+		beforeRestart.getCategories(figshare);
+		beforeRestart.getLicenses(figshare);
+
+		when(figshare.getCategories(false)).thenThrow(new RestClientException("Figshare is down"));
+		when(figshare.getLicenses(false)).thenThrow(new RestClientException("Figshare is down"));
+		FigshareReferenceData afterRestart = newReferenceData();
+		afterRestart.useSnapshot(snapshot);
+
+		assertEquals(List.of("Biology", "Genetics"), titles(afterRestart.getCategories(figshare)));
+		assertEquals("CC BY", afterRestart.getLicenses(figshare).getLicenses().get(0).getName());
+		// the failed background refresh was attempted after serving from the snapshot
+		verify(figshare, times(2)).getCategories(false);
+	}
+
+	@Test
+	@DisplayName("Snapshot data is replaced by a background refresh")
+	void snapshotRefreshed() {
+		snapshot.save(categories, licenses);
+		List<FigshareCategory> updated = List.of(new FigshareCategory(3L, null, "Chemistry"));
+		when(figshare.getCategories(false)).thenReturn(updated);
+		FigshareReferenceData referenceData = newReferenceData();
+		referenceData.useSnapshot(snapshot);
+
+		assertEquals(List.of("Biology", "Genetics"), titles(referenceData.getCategories(figshare)));
+		assertEquals(List.of("Chemistry"), titles(referenceData.getCategories(figshare)));
+		assertEquals(List.of("Chemistry"), titles(CategorySet.of(snapshot.load().get().getCategories())));
+		assertEquals(licenses, snapshot.load().get().getLicenses());
+	}
+
+	@Test
+	@DisplayName("Snapshots of another version, or that can't be parsed, are ignored")
+	void unusableSnapshotsIgnored() throws Exception {
+		Files.writeString(snapshot.getFile(), "{\"version\":" + (ReferenceDataSnapshot.VERSION + 1) + "}");
+		assertTrue(snapshot.load().isEmpty());
+		Files.writeString(snapshot.getFile(), "{\"version\":1, \"categ", StandardCharsets.UTF_8);
+		assertTrue(snapshot.load().isEmpty());
+
+		when(figshare.getCategories(false)).thenReturn(categories);
+		FigshareReferenceData referenceData = newReferenceData();
+		referenceData.useSnapshot(snapshot);
+		assertEquals(List.of("Biology", "Genetics"), titles(referenceData.getCategories(figshare)));
+		assertEquals(categories, snapshot.load().get().getCategories());
+	}
+
+	private FigshareReferenceData newReferenceData() {
+		// background refreshes run synchronously, so their effect can be asserted straight away
+		return new FigshareReferenceData(
+				new ReferenceDataCache<>(TTL, TTL.dividedBy(2), 4, Runnable::run, System::nanoTime),
+				new ReferenceDataCache<>(TTL, TTL.dividedBy(2), 4, Runnable::run, System::nanoTime));
+	}
+
+	private static List<String> titles(CategorySet categories) {
+		return categories.getCategories().stream().map(FigshareCategory::getTitle).collect(Collectors.toList());
+	}
+}
@@ -0,0 +1,188 @@
+package com.researchspace.figshare.rspaceadapter;
+
+import com.researchspace.figshare.api.Figshare;
+import com.researchspace.figshare.model.ArticlePost;
+import com.researchspace.figshare.model.ArticlePresenter;
+import com.researchspace.figshare.model.Location;
+import com.researchspace.repository.spi.RepositoryOperationResult;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.io.File;
+import java.net.URL;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.util.Collections.emptyList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ResilientFigshareTest {
+
+	private static final FigshareResilience SETTINGS = FigshareResilience.builder()
+			.requestsPerSecond(100).burst(100).maxAttempts(3)
+			.failureThreshold(3).openDuration(Duration.ofSeconds(30)).build();
+
+	@Mock Figshare figshare;
+	AtomicLong now = new AtomicLong();
+	List<Long> sleeps = new ArrayList<>();
+	ResilientFigshare handler;
+	Figshare resilient;
+	Location loc;
+
+	@BeforeEach
+	public void setUp() throws Exception {
+		MockitoAnnotations.initMocks(this);
+		handler = new ResilientFigshare(figshare, SETTINGS, now::get, nanos -> {
+			sleeps.add(nanos);
+			now.addAndGet(nanos);
+		});
+		resilient = ResilientFigshare.proxy(handler);
+		loc = new Location(new URL("https://somewhere-on-figshare.com/1234"), emptyList(), "1234");
+	}
+
+	@Test
+	@DisplayName("Idempotent calls are retried with backoff after server errors")
+	void idempotentCallRetried() {
+		ArticlePresenter article = new ArticlePresenter();
+		when(figshare.getArticle(loc.getId())).thenThrow(new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE))
+				.thenThrow(new HttpServerErrorException(HttpStatus.BAD_GATEWAY))
+				.thenReturn(article);
+
+		assertSame(article, resilient.getArticle(loc.getId()));
+		verify(figshare, times(3)).getArticle(loc.getId());
+		assertEquals(2, sleeps.size());
+		assertThat(sleeps.get(0)).isBetween(Duration.ofMillis(250).toNanos(), Duration.ofMillis(500).toNanos());
+		assertThat(sleeps.get(1)).isBetween(Duration.ofMillis(500).toNanos(), Duration.ofMillis(1000).toNanos());
+	}
+
+	@Test
+	@DisplayName("Calls that might not be idempotent aren't retried after server errors")
+	void nonIdempotentCallNotRetried() {
+		when(figshare.createArticle(any())).thenThrow(new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE));
+
+		assertThrows(HttpServerErrorException.class, () -> resilient.createArticle(ArticlePost.builder().build()));
+		verify(figshare, times(1)).createArticle(any());
+	}
+
+	@Test
+	@DisplayName("Uploads aren't repeated, even when throttled, as each attempt starts a new file")
+	void uploadsNotRetried() {
+		File file = new File("src/test/resources/HTMLExportWithAttachments.zip");
+		when(figshare.uploadFile(loc.getId(), file))
+				.thenThrow(new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE))
+				.thenThrow(HttpClientErrorException.create(HttpStatus.TOO_MANY_REQUESTS, "Too Many Requests",
+						new HttpHeaders(), null, null));
+
+		assertThrows(HttpServerErrorException.class, () -> resilient.uploadFile(loc.getId(), file));
+		assertThrows(HttpClientErrorException.class, () -> resilient.uploadFile(loc.getId(), file));
+		verify(figshare, times(2)).uploadFile(loc.getId(), file);
+		assertThat(handler.getLimiter().getRate()).isLessThan(SETTINGS.getRequestsPerSecond());
+	}
+
+	@Test
+	@DisplayName("Disabled settings leave the client undecorated")
+	void disabledSettings() {
+		assertFalse(FigshareResilience.NONE.isEnabled());
+		assertSame(figshare, FigshareResilience.NONE.decorate(figshare));
+		assertSame(figshare, FigshareResilience.builder().enabled(false).maxAttempts(9).build().decorate(figshare));
+		assertNotSame(figshare, FigshareResilience.defaults().decorate(figshare));
+	}
+
+	@Test
+	@DisplayName("Throttled calls wait for Retry-After and halve the request rate")
+	void throttledCallsRetriedAfterRetryAfter() {
+		HttpHeaders headers = new HttpHeaders();
+		headers.set(HttpHeaders.RETRY_AFTER, "7");
+		when(figshare.createArticle(any()))
+				.thenThrow(HttpClientErrorException.create(HttpStatus.TOO_MANY_REQUESTS, "Too Many Requests", headers, null, null))
+				.thenReturn(loc);
+
+		assertSame(loc, resilient.createArticle(ArticlePost.builder().build()));
+		assertThat(sleeps.stream().mapToLong(Long::longValue).sum()).isGreaterThanOrEqualTo(TimeUnit.SECONDS.toNanos(7));
+		assertThat(handler.getLimiter().getRate()).isLessThan(SETTINGS.getRequestsPerSecond());
+	}
+
+	@Test
+	@DisplayName("Calls fail fast while the circuit is open, and resume after a successful trial call")
+	void circuitBreaker() {
+		when(figshare.test()).thenThrow(new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE))
+				.thenThrow(new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE))
+				.thenThrow(new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE))
+				.thenReturn(true);
+
+		assertThrows(HttpServerErrorException.class, () -> resilient.test());
+		assertThrows(FigshareUnavailableException.class, () -> resilient.test());
+		verify(figshare, times(3)).test();
+
+		now.addAndGet(Duration.ofSeconds(31).toNanos());
+		assertTrue(resilient.test());
+		assertEquals(CircuitBreaker.State.CLOSED, handler.getBreaker().getState());
+	}
+
+	@Test
+	@DisplayName("A trial call interrupted while waiting for the rate limiter lets a later call be the trial")
+	void interruptedTrialReleased() {
+		// one permit per 100 seconds, so the trial call has to wait for one
+		FigshareResilience slow = FigshareResilience.builder().requestsPerSecond(0.01).burst(1).maxAttempts(1)
+				.failureThreshold(1).openDuration(Duration.ofSeconds(30)).build();
+		AtomicBoolean interrupt = new AtomicBoolean();
+		ResilientFigshare slowHandler = new ResilientFigshare(figshare, slow, now::get, nanos -> {
+			if (interrupt.getAndSet(false)) {
+				throw new InterruptedException();
+			}
+			now.addAndGet(nanos);
+		});
+		Figshare slowResilient = ResilientFigshare.proxy(slowHandler);
+		when(figshare.test()).thenThrow(new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE))
+				.thenReturn(true);
+		assertThrows(HttpServerErrorException.class, () -> slowResilient.test());
+
+		now.addAndGet(Duration.ofSeconds(31).toNanos());
+		interrupt.set(true);
+		assertThrows(ResourceAccessException.class, () -> slowResilient.test());
+		assertTrue(Thread.interrupted());
+		assertEquals(CircuitBreaker.State.HALF_OPEN, slowHandler.getBreaker().getState());
+
+		assertTrue(slowResilient.test());
+		assertEquals(CircuitBreaker.State.CLOSED, slowHandler.getBreaker().getState());
+	}
+
+	@Test
+	@DisplayName("testConnection fails fast while Figshare is down")
+	void testConnectionFailsFast() {
+		when(figshare.test()).thenThrow(new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE));
+		FigshareRSpaceRepository repo = new FigshareRSpaceRepository();
+		repo.setResilience(FigshareResilience.builder().maxAttempts(1).failureThreshold(2).build());
+		repo.setFigshare(figshare);
+
+		repo.testConnection();
+		repo.testConnection();
+		RepositoryOperationResult result = repo.testConnection();
+
+		assertFalse(result.isSucceeded());
+		assertThat(result.getMessage()).contains("Figshare is unavailable");
+		verify(figshare, times(2)).test();
+	}
+}